@@ -273,8 +273,13 @@ public class ClientNaiveAgent implements Runnable {
 						// update parameters after a shot is made
 						if (state == GameState.PLAYING) {
 							screenshot = ar.doScreenShot();
-							vision = new Vision(screenshot);
-							List<Point> traj = vision.findTrajPoints();
+							// only the corridor around the predicted trajectory is
+							// processed and searched for trajectory points
+							vision = new Vision(screenshot, Vision.trajectoryCorridor(
+									sling, releasePoint, tp, screenshot.getWidth(),
+									screenshot.getHeight()));
+							List<Point> traj = vision.findTrajPoints(sling,
+									releasePoint, tp);
 							tp.adjustTrajectory(traj, sling, releasePoint);
 							firstShot = false;
 						}
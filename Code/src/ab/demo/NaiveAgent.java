@@ -22,6 +22,8 @@ import ab.demo.other.Shot;
 import ab.demo.util.StateUtil;
 import ab.planner.TrajectoryPlanner;
 import ab.vision.GameStateExtractor.GameState;
+import ab.vision.ObjectTracker;
+import ab.vision.SlingshotCache;
 import ab.vision.Vision;
 
 public class NaiveAgent implements Runnable {
@@ -35,6 +37,8 @@ public class NaiveAgent implements Runnable {
 
 	private boolean firstShot;
 	private Point prevTarget;
+	private ObjectTracker tracker; // follows objects across shots (or null)
+	private SlingshotCache slingshots = new SlingshotCache();
 
 	// a standalone implementation of the Naive Agent
 	public NaiveAgent() {
@@ -55,6 +59,11 @@ public class NaiveAgent implements Runnable {
 		this.currentLevel = current_level;
 	}
 
+	// follow objects across shots with the given tracker (null to stop)
+	public void setTracker(ObjectTracker tracker) {
+		this.tracker = tracker;
+	}
+
 	// run the client
 	public void run() {
 
@@ -85,9 +94,13 @@ public class NaiveAgent implements Runnable {
 
 				// first shot on this level, try high shot first
 				firstShot = true;
+				if (tracker != null)
+					tracker.clear();
 			} else if (state == GameState.LOST) {
 				System.out.println("restart");
 				ar.restartLevel();
+				if (tracker != null)
+					tracker.clear();
 			} else if (state == GameState.LEVEL_SELECTION) {
 				System.out
 						.println("unexpected level selection page, go to the lasts current level : "
@@ -137,6 +150,7 @@ public class NaiveAgent implements Runnable {
 			vision = new Vision(screenshot);
 			sling = vision.findSlingshot();
 		}
+		slingshots.remember(sling, screenshot);
 
 		List<Rectangle> red_birds = vision.findRedBirds();
 		List<Rectangle> blue_birds = vision.findBlueBirds();
@@ -147,6 +161,11 @@ public class NaiveAgent implements Runnable {
 
 		System.out.println("...found " + pigs.size() + " pigs and "
 				+ bird_count + " birds");
+		List<ObjectTracker.TrackedObject> trackedPigs = null;
+		if (tracker != null) {
+			tracker.update(screenshot);
+			trackedPigs = tracker.getObjects(ObjectTracker.Kind.PIG);
+		}
 		GameState state = ar.checkState();
 
 		// if there is a sling, then play, otherwise just skip.
@@ -233,21 +252,41 @@ public class NaiveAgent implements Runnable {
 				}
 
 				// check whether the slingshot is changed. the change of the
-				// slingshot indicates a change in the scale.
+				// slingshot indicates a change in the scale. the slingshot is
+				// only found again if the pixels around it changed
 				{
 					ar.fullyZoom();
 					screenshot = ActionRobot.doScreenShot();
-					vision = new Vision(screenshot);
-					Rectangle _sling = vision.findSlingshot();
+					Rectangle _sling = slingshots.findSlingshot(screenshot);
 					if (sling.equals(_sling)) {
 						state = ar.shootWithStateInfoReturned(shots);
 						// update parameters after a shot is made
 						if (state == GameState.PLAYING) {
 							screenshot = ActionRobot.doScreenShot();
-							vision = new Vision(screenshot);
-							List<Point> traj = vision.findTrajPoints();
+							// only the corridor around the predicted trajectory is
+							// processed and searched for trajectory points
+							vision = new Vision(screenshot, Vision.trajectoryCorridor(
+									sling, releasePoint, tp, screenshot.getWidth(),
+									screenshot.getHeight()));
+							List<Point> traj = vision.findTrajPoints(sling,
+									releasePoint, tp);
 							tp.adjustTrajectory(traj, sling, releasePoint);
 							firstShot = false;
+
+							// report the pigs the shot destroyed
+							if (tracker != null) {
+								tracker.update(screenshot);
+								int destroyed = 0;
+								for (ObjectTracker.TrackedObject pig : trackedPigs) {
+									ObjectTracker.TrackedObject seen = tracker
+											.getObject(pig.getId());
+									if ((seen == null) || (seen.getMissed() > 0))
+										destroyed++;
+								}
+								System.out.println("...the shot destroyed "
+										+ destroyed + " of "
+										+ trackedPigs.size() + " pigs");
+							}
 							
 						}
 					} else
@@ -266,6 +305,9 @@ public class NaiveAgent implements Runnable {
 		NaiveAgent na = new NaiveAgent();
 		if (args.length > 0)
 			na.currentLevel = Integer.parseInt(args[0]);
+		// -Dab.demo.track=true follows objects across shots
+		if (Boolean.getBoolean("ab.demo.track"))
+			na.setTracker(new ObjectTracker());
 		na.run();
 
 	}
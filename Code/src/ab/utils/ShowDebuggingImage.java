@@ -29,6 +29,7 @@ public class ShowDebuggingImage {
         protected int[][] _meta = null;
         protected Boolean _highlightMode = false;
         protected int _highlightIndex = -1;
+        protected SegmentRuns _metaRuns = null;
 
         public Boolean bWaitingForKey = false;
 
@@ -46,13 +47,18 @@ public class ShowDebuggingImage {
         public void refresh(Image img, int[][] meta) {
             _img = img;
             _meta = meta;
+            _metaRuns = null;
             this.repaint();
         }
 
         public void paint(Graphics g) {
             if (_img != null) {
                 if ((_meta != null) && (_highlightIndex != -1)) {
-                    BufferedImage canvas = VisionUtils.highlightRegions(_img, _meta, _highlightIndex, Color.RED);
+                    // runs of the meta information, kept until the image changes
+                    if (_metaRuns == null) {
+                        _metaRuns = SegmentRuns.fromLabels(_meta);
+                    }
+                    BufferedImage canvas = VisionUtils.highlightRegions(_img, _metaRuns, _highlightIndex, Color.RED);
                     g.drawImage(canvas, 0, 0, null);
                 } else {
                     g.drawImage(_img, 0, 0, null);
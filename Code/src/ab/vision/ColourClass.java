@@ -0,0 +1,115 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.util.Arrays;
+
+/* ColourClass ------------------------------------------------------------ */
+
+// set of quantized (9-bit) colours making up a kind of object, tested with
+// a lookup table indexed by colour. the first colour of a class is its
+// seed, the one detectors grow regions from
+public class ColourClass implements FloodFill.ColourPredicate {
+
+	// number of quantized colours
+	public static final int NUM_COLOURS = 512;
+
+	// prefix of the system properties overriding the colours of a class,
+	// e.g. -Dab.vision.colours.wood=481,408,417
+	public static final String PROPERTY_PREFIX = "ab.vision.colours.";
+
+	private final String _name;
+	private final int _colours[]; // colours in the order given
+	private final boolean _members[]; // membership of colour c at c + 1
+
+	// create a class from its colours (at least one)
+	public ColourClass(String name, int... colours) {
+		if (colours.length == 0)
+			throw new IllegalArgumentException("colour class " + name
+					+ " is empty");
+		_name = name;
+		_colours = colours.clone();
+		_members = new boolean[NUM_COLOURS + 1];
+		for (int c : colours) {
+			if ((c < 0) || (c >= NUM_COLOURS))
+				throw new IllegalArgumentException("colour " + c
+						+ " of class " + name + " is out of range");
+			_members[c + 1] = true;
+		}
+	}
+
+	// create a class whose colours may be overridden by the system property
+	// PROPERTY_PREFIX + name (a comma separated list of colours)
+	public static ColourClass configurable(String name, int... colours) {
+		final String value = System.getProperty(PROPERTY_PREFIX + name);
+		if (value == null)
+			return new ColourClass(name, colours);
+		try {
+			final String[] fields = value.split(",");
+			int[] configured = new int[fields.length];
+			for (int i = 0; i < fields.length; i++) {
+				configured[i] = Integer.parseInt(fields[i].trim());
+			}
+			return new ColourClass(name, configured);
+		} catch (IllegalArgumentException e) {
+			System.err.println("ERROR: ignoring " + PROPERTY_PREFIX + name
+					+ "=" + value + " (" + e.getMessage() + ")");
+			return new ColourClass(name, colours);
+		}
+	}
+
+	// create a class of the colours of the given classes, in order and
+	// without duplicates. the seed is the one of the first class
+	public static ColourClass union(String name, ColourClass... classes) {
+		final boolean[] seen = new boolean[NUM_COLOURS];
+		int[] colours = new int[NUM_COLOURS];
+		int n = 0;
+		for (ColourClass c : classes) {
+			for (int colour : c._colours) {
+				if (!seen[colour]) {
+					seen[colour] = true;
+					colours[n++] = colour;
+				}
+			}
+		}
+		return new ColourClass(name, Arrays.copyOf(colours, n));
+	}
+
+	public String getName() {
+		return _name;
+	}
+
+	// colour detectors grow regions of this class from
+	public int getSeed() {
+		return _colours[0];
+	}
+
+	public int[] getColours() {
+		return _colours.clone();
+	}
+
+	// check if a colour belongs to the class (pixels without colour, -1,
+	// never do)
+	public boolean accept(int colour) {
+		return _members[colour + 1];
+	}
+
+	// the lookup table itself, for loops testing every pixel of a scene:
+	// colour c belongs to the class if entry c + 1 is set
+	boolean[] lookupTable() {
+		return _members;
+	}
+
+	@Override
+	public String toString() {
+		return _name + Arrays.toString(_colours);
+	}
+}
@@ -0,0 +1,132 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Polygon;
+import java.util.Arrays;
+
+/* ContourTracer ---------------------------------------------------------- */
+
+// reusable Moore neighbour tracing of the outer boundary of a region just
+// filled by a FloodFill. the region's pixels are stamped (so that pixels of
+// other regions of the same colours are outside it), and the boundary is
+// followed clockwise from the region's first pixel in raster order until
+// the first move from that pixel is about to be made again (from there on
+// the tracing would repeat itself; stopping when the first pixel is merely
+// reached again cuts off regions such as lines, whose boundary passes it
+// twice). the contour is a polygon through the centres of its pixels
+// with a vertex only where the boundary turns, so a rectangular block has
+// four vertices however large it is; the polygon's bounds are the ones
+// FloodFill.fill gives
+public class ContourTracer {
+
+	// neighbours in clockwise order (y down), starting west
+	private static final int DX[] = { -1, -1, 0, 1, 1, 1, 0, -1 };
+	private static final int DY[] = { 0, -1, -1, -1, 0, 1, 1, 1 };
+
+	// direction of the last neighbour checked before moving in direction d,
+	// seen from the pixel moved to
+	private static final int BACKTRACK[] = new int[8];
+	static {
+		for (int d = 0; d < 8; d++) {
+			final int p = (d + 7) % 8;
+			for (int b = 0; b < 8; b++) {
+				if ((DX[b] == DX[p] - DX[d]) && (DY[b] == DY[p] - DY[d]))
+					BACKTRACK[d] = b;
+			}
+		}
+	}
+
+	private final int _nWidth; // width of the scene
+	private final int _nHeight; // height of the scene
+	private final int _stamp[]; // region a pixel was last stamped with
+	private int _region = 0; // stamp of the region being traced
+	private int _xs[] = new int[64]; // vertices of the contour
+	private int _ys[] = new int[64];
+
+	// create a tracer for width-by-height scenes
+	public ContourTracer(int width, int height) {
+		_nWidth = width;
+		_nHeight = height;
+		_stamp = new int[width * height];
+	}
+
+	public int getWidth() {
+		return _nWidth;
+	}
+
+	public int getHeight() {
+		return _nHeight;
+	}
+
+	// contour of the nPixels pixels fill filled last (nPixels as it returned)
+	public Polygon trace(FloodFill fill, int nPixels) {
+		if (++_region == Integer.MAX_VALUE) {
+			Arrays.fill(_stamp, 0);
+			_region = 1;
+		}
+		int start = Integer.MAX_VALUE;
+		for (int k = 0; k < nPixels; k++) {
+			final int p = fill.getPixel(k);
+			_stamp[p] = _region;
+			start = Math.min(start, p);
+		}
+
+		// the pixel west of the first pixel is outside the region
+		int x = start % _nWidth;
+		int y = start / _nWidth;
+		int back = 0;
+		int nVertices = 0;
+		int first = -1; // direction of the first move
+		int last = -1; // direction of the last move
+		addVertex(nVertices++, x, y);
+		// a pixel is passed at most four times
+		for (int steps = 0; steps <= 4 * nPixels; steps++) {
+			int d = -1;
+			for (int k = 1; k <= 8; k++) {
+				final int c = (back + k) % 8;
+				if (inside(x + DX[c], y + DY[c])) {
+					d = c;
+					break;
+				}
+			}
+			// a single pixel, or back where the contour started
+			if ((d < 0) || ((d == first) && (y * _nWidth + x == start)))
+				break;
+			if (first < 0)
+				first = d;
+
+			// add a vertex where the boundary turns
+			if ((last >= 0) && (d != last))
+				addVertex(nVertices++, x, y);
+			last = d;
+			x += DX[d];
+			y += DY[d];
+			back = BACKTRACK[d];
+		}
+		return new Polygon(Arrays.copyOf(_xs, nVertices), Arrays.copyOf(
+				_ys, nVertices), nVertices);
+	}
+
+	private boolean inside(int x, int y) {
+		return (x >= 0) && (x < _nWidth) && (y >= 0) && (y < _nHeight)
+				&& (_stamp[y * _nWidth + x] == _region);
+	}
+
+	private void addVertex(int n, int x, int y) {
+		if (n == _xs.length) {
+			_xs = Arrays.copyOf(_xs, 2 * n);
+			_ys = Arrays.copyOf(_ys, 2 * n);
+		}
+		_xs[n] = x;
+		_ys[n] = y;
+	}
+}
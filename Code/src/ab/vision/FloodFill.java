@@ -0,0 +1,144 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/* FloodFill -------------------------------------------------------------- */
+
+// reusable flood fill over a row-major quantized scene. pixels are kept in
+// an int queue and marked visited with a generation stamp, so that filling
+// does not allocate and a new detection pass is started in constant time.
+// every pixel of a region enters the queue once, so after a fill the queue
+// holds the whole region (see getPixel)
+public class FloodFill {
+
+	// decides whether a quantized colour belongs to the region being filled
+	public interface ColourPredicate {
+		public boolean accept(int colour);
+	}
+
+	private final int _nWidth; // width of the scene
+	private final int _nHeight; // height of the scene
+	private final int _visited[]; // generation in which a pixel was visited
+	private final int _queue[]; // pixels of the region being filled
+	private int _generation = 1; // current detection pass
+
+	// create a flood fill engine for width-by-height scenes
+	public FloodFill(int width, int height) {
+		_nWidth = width;
+		_nHeight = height;
+		_visited = new int[width * height];
+		_queue = new int[width * height];
+	}
+
+	public int getWidth() {
+		return _nWidth;
+	}
+
+	public int getHeight() {
+		return _nHeight;
+	}
+
+	// start a new detection pass, forgetting all visited pixels
+	public void clear() {
+		if (++_generation == Integer.MAX_VALUE) {
+			Arrays.fill(_visited, 0);
+			_generation = 1;
+		}
+	}
+
+	// check if pixel i was visited in the current detection pass
+	public boolean isVisited(int i) {
+		return _visited[i] == _generation;
+	}
+
+	// pixel k (0 to the number fill returned - 1) of the last region filled
+	public int getPixel(int k) {
+		return _queue[k];
+	}
+
+	// fill the region of pixels accepted by predicate that is connected to
+	// the seed pixel and mark it visited; bounds is set to the bounding box
+	// of the region (through pixel centres, as Rectangle.add gives) and the
+	// number of pixels in the region is returned. as in the original
+	// detectors, an 8-connected fill does not expand from border pixels
+	public int fill(short[] scene, int seed, ColourPredicate predicate,
+			boolean eightConnected, Rectangle bounds) {
+		final int w = _nWidth;
+		final int g = _generation;
+
+		int minX = seed % w;
+		int maxX = minX;
+		int minY = seed / w;
+		int maxY = minY;
+		int nPixels = 0;
+
+		int head = 0;
+		int tail = 0;
+		_queue[tail++] = seed;
+		_visited[seed] = g;
+		while (head < tail) {
+			final int p = _queue[head++];
+			final int x = p % w;
+			final int y = p / w;
+			nPixels++;
+			if (x < minX)
+				minX = x;
+			if (x > maxX)
+				maxX = x;
+			if (y < minY)
+				minY = y;
+			if (y > maxY)
+				maxY = y;
+
+			if (!eightConnected) {
+				// check underneath, right, upper and left pixels
+				if ((y < _nHeight - 1) && (_visited[p + w] != g)
+						&& predicate.accept(scene[p + w])) {
+					_visited[p + w] = g;
+					_queue[tail++] = p + w;
+				}
+				if ((x < w - 1) && (_visited[p + 1] != g)
+						&& predicate.accept(scene[p + 1])) {
+					_visited[p + 1] = g;
+					_queue[tail++] = p + 1;
+				}
+				if ((y > 0) && (_visited[p - w] != g)
+						&& predicate.accept(scene[p - w])) {
+					_visited[p - w] = g;
+					_queue[tail++] = p - w;
+				}
+				if ((x > 0) && (_visited[p - 1] != g)
+						&& predicate.accept(scene[p - 1])) {
+					_visited[p - 1] = g;
+					_queue[tail++] = p - 1;
+				}
+			} else if ((y < _nHeight - 1) && (x < w - 1) && (y > 0)
+					&& (x > 0)) {
+				// check all eight neighbours of an interior pixel
+				for (int dy = -w; dy <= w; dy += w) {
+					for (int dx = -1; dx <= 1; dx++) {
+						final int q = p + dy + dx;
+						if ((_visited[q] != g) && predicate.accept(scene[q])) {
+							_visited[q] = g;
+							_queue[tail++] = q;
+						}
+					}
+				}
+			}
+		}
+
+		bounds.setBounds(minX, minY, maxX - minX, maxY - minY);
+		return nPixels;
+	}
+}
@@ -157,9 +157,12 @@ public class GameStateExtractor {
 
 		// extract characters
 		int mask[][] = new int[scoreImage.getHeight()][scoreImage.getWidth()];
+		PixelReader pixels = new PixelReader(scoreImage);
+		int[] row = new int[scoreImage.getWidth()];
 		for (int y = 0; y < scoreImage.getHeight(); y++) {
+			pixels.readRow(y, row);
 			for (int x = 0; x < scoreImage.getWidth(); x++) {
-				final int colour = scoreImage.getRGB(x, y);
+				final int colour = row[x];
 				mask[y][x] = ((colour & 0x00ffffff) == 0x00ffffff) ? 1 : -1;
 			}
 		}
@@ -217,9 +220,12 @@ public class GameStateExtractor {
 	private static BufferedImage extractNumber(BufferedImage image) {
 
 		int mask[][] = new int[image.getHeight()][image.getWidth()];
+		PixelReader pixels = new PixelReader(image);
+		int[] row = new int[image.getWidth()];
 		for (int y = 0; y < image.getHeight(); y++) {
+			pixels.readRow(y, row);
 			for (int x = 0; x < image.getWidth(); x++) {
-				final int colour = image.getRGB(x, y);
+				final int colour = row[x];
 				mask[y][x] = (((colour & 0x00ff0000) >> 16) > 192) ? 1 : -1;
 			}
 		}
@@ -248,9 +254,12 @@ public class GameStateExtractor {
         
 		// extract characters
 		int mask[][] = new int[scoreImage.getHeight()][scoreImage.getWidth()];
+		PixelReader pixels = new PixelReader(scoreImage);
+		int[] row = new int[scoreImage.getWidth()];
 		for (int y = 0; y < scoreImage.getHeight(); y++) {
+			pixels.readRow(y, row);
 			for (int x = 0; x < scoreImage.getWidth(); x++) {
-				final int colour = scoreImage.getRGB(x, y);
+				final int colour = row[x];
 				mask[y][x] = (((colour & 0x00ff0000) >> 16) > 192) ? 1 : -1;
 			}
 		}
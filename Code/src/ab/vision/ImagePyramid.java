@@ -0,0 +1,111 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/* ImagePyramid ----------------------------------------------------------- */
+
+// coarse level of a screenshot, downsampled by taking every factor-th pixel
+// of every factor-th row (sampling rather than averaging, so that every
+// coarse pixel has a colour of the scene). objects are much larger than a
+// pixel, so the coarse level is enough to find where they may be and leave
+// the full resolution to those regions (see Vision.pyramid)
+public class ImagePyramid {
+
+	private final int _nFactor; // downsampling factor
+	private final int _nWidth; // width of the full resolution scene
+	private final int _nHeight; // height of the full resolution scene
+	private final int _nCoarseWidth; // width of the coarse scene
+	private final int _nCoarseHeight; // height of the coarse scene
+	private final short _scene[]; // quantized coarse scene (row-major)
+
+	// downsample and quantize a screenshot
+	public ImagePyramid(BufferedImage screenshot, int factor) {
+		if (factor < 1)
+			throw new IllegalArgumentException("downsampling factor " + factor
+					+ " is not positive");
+		_nFactor = factor;
+		_nWidth = screenshot.getWidth();
+		_nHeight = screenshot.getHeight();
+		_nCoarseWidth = (_nWidth + factor - 1) / factor;
+		_nCoarseHeight = (_nHeight + factor - 1) / factor;
+		_scene = new short[_nCoarseWidth * _nCoarseHeight];
+
+		final PixelReader pixels = new PixelReader(screenshot);
+		final int[] row = new int[_nWidth];
+		for (int y = 0, i = 0; y < _nCoarseHeight; y++) {
+			pixels.readRow(y * factor, row);
+			for (int x = 0; x < _nCoarseWidth; x++, i++) {
+				_scene[i] = Vision.quantize(row[x * factor]);
+			}
+		}
+	}
+
+	public int getFactor() {
+		return _nFactor;
+	}
+
+	public int getCoarseWidth() {
+		return _nCoarseWidth;
+	}
+
+	public int getCoarseHeight() {
+		return _nCoarseHeight;
+	}
+
+	// quantized colour of coarse pixel (x, y)
+	public short getColour(int x, int y) {
+		return _scene[y * _nCoarseWidth + x];
+	}
+
+	// full resolution rectangles covering the coarse pixels of the given
+	// colours grown by margin coarse pixels, one for each horizontal run of
+	// them (cropped to the scene). bounding boxes of connected groups would
+	// be fewer, but the colours of large objects also turn up across the
+	// background, and their boxes would cover most of the scene
+	public List<Rectangle> findCandidates(ColourClass colours, int margin) {
+		final MaskPlane mask = MaskPlane.fromScene(_scene, _nCoarseWidth,
+				_nCoarseHeight, colours).dilate(margin);
+
+		List<Rectangle> candidates = new ArrayList<Rectangle>();
+		for (int y = 0; y < _nCoarseHeight; y++) {
+			for (int x = 0; x < _nCoarseWidth; x++) {
+				if (!mask.get(x, y))
+					continue;
+				final int x0 = x;
+				while ((x < _nCoarseWidth) && mask.get(x, y)) {
+					x++;
+				}
+				candidates.add(VisionUtils.cropBoundingBox(new Rectangle(x0
+						* _nFactor, y * _nFactor, (x - x0) * _nFactor,
+						_nFactor), _nWidth, _nHeight));
+			}
+		}
+		return candidates;
+	}
+
+	// region of interest made of the candidates for the given colours,
+	// without the heads up display
+	public RegionOfInterest regionOfInterest(ColourClass colours, int margin) {
+		List<Rectangle> candidates = findCandidates(colours, margin);
+		if (candidates.isEmpty()) {
+			// an empty list would include the whole scene
+			candidates.add(new Rectangle());
+		}
+		return new RegionOfInterest(candidates,
+				Arrays.asList(RegionOfInterest.HUD));
+	}
+}
@@ -0,0 +1,269 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/* MaskPlane -------------------------------------------------------------- */
+
+// binary mask of a scene packed 64 pixels to a long, row by row (pixel x
+// of a row is bit x % 64 of word x / 64, and rows are padded to whole
+// words with zero bits). morphology, boolean operations and counts work
+// on whole words at a time
+public class MaskPlane {
+
+	private final int _nWidth; // width of the mask
+	private final int _nHeight; // height of the mask
+	private final int _nWords; // words per row
+	private final long _lastWord; // valid bits of the last word of a row
+	private long _bits[]; // the mask, row-major
+	private long _work[]; // work buffer for morphology
+
+	// create an empty width-by-height mask
+	public MaskPlane(int width, int height) {
+		_nWidth = width;
+		_nHeight = height;
+		_nWords = (width + 63) / 64;
+		_lastWord = (width % 64 == 0) ? -1L : (1L << (width % 64)) - 1;
+		_bits = new long[_nWords * height];
+	}
+
+	// create a mask of the non-zero pixels of an image
+	public MaskPlane(int[][] image) {
+		this(image[0].length, image.length);
+		for (int y = 0; y < _nHeight; y++) {
+			for (int x = 0; x < _nWidth; x++) {
+				if (image[y][x] != 0)
+					_bits[y * _nWords + (x >> 6)] |= 1L << x;
+			}
+		}
+	}
+
+	// create a mask of the pixels of a row-major quantized scene whose
+	// colour is accepted by colours
+	public static MaskPlane fromScene(short[] scene, int width, int height,
+			FloodFill.ColourPredicate colours) {
+		MaskPlane mask = new MaskPlane(width, height);
+		for (int y = 0, i = 0; y < height; y++) {
+			final int row = y * mask._nWords;
+			for (int x = 0; x < width; x++, i++) {
+				if (colours.accept(scene[i]))
+					mask._bits[row + (x >> 6)] |= 1L << x;
+			}
+		}
+		return mask;
+	}
+
+	// create a mask of the pixels of an image with the given label
+	public static MaskPlane fromLabels(int[][] labels, int label) {
+		MaskPlane mask = new MaskPlane(labels[0].length, labels.length);
+		for (int y = 0; y < mask._nHeight; y++) {
+			final int row = y * mask._nWords;
+			for (int x = 0; x < mask._nWidth; x++) {
+				if (labels[y][x] == label)
+					mask._bits[row + (x >> 6)] |= 1L << x;
+			}
+		}
+		return mask;
+	}
+
+	public int getWidth() {
+		return _nWidth;
+	}
+
+	public int getHeight() {
+		return _nHeight;
+	}
+
+	public MaskPlane copy() {
+		MaskPlane mask = new MaskPlane(_nWidth, _nHeight);
+		System.arraycopy(_bits, 0, mask._bits, 0, _bits.length);
+		return mask;
+	}
+
+	// check if pixel (x, y) is set (pixels outside the mask never are)
+	public boolean get(int x, int y) {
+		if ((x < 0) || (y < 0) || (x >= _nWidth) || (y >= _nHeight))
+			return false;
+		return ((_bits[y * _nWords + (x >> 6)] >>> x) & 1) != 0;
+	}
+
+	public void set(int x, int y, boolean value) {
+		if (value) {
+			_bits[y * _nWords + (x >> 6)] |= 1L << x;
+		} else {
+			_bits[y * _nWords + (x >> 6)] &= ~(1L << x);
+		}
+	}
+
+	// number of pixels set
+	public int count() {
+		int n = 0;
+		for (long w : _bits) {
+			n += Long.bitCount(w);
+		}
+		return n;
+	}
+
+	// number of pixels set within a rectangle (cropped to the mask)
+	public int count(Rectangle r) {
+		final int x0 = Math.max(0, r.x);
+		final int x1 = Math.min(_nWidth, r.x + r.width);
+		final int y0 = Math.max(0, r.y);
+		final int y1 = Math.min(_nHeight, r.y + r.height);
+		if ((x0 >= x1) || (y0 >= y1))
+			return 0;
+
+		final int w0 = x0 >> 6;
+		final int w1 = (x1 - 1) >> 6;
+		final long first = -1L << x0;
+		final long last = -1L >>> (63 - ((x1 - 1) & 63));
+		int n = 0;
+		for (int y = y0; y < y1; y++) {
+			final int row = y * _nWords;
+			if (w0 == w1) {
+				n += Long.bitCount(_bits[row + w0] & first & last);
+				continue;
+			}
+			n += Long.bitCount(_bits[row + w0] & first);
+			for (int w = w0 + 1; w < w1; w++) {
+				n += Long.bitCount(_bits[row + w]);
+			}
+			n += Long.bitCount(_bits[row + w1] & last);
+		}
+		return n;
+	}
+
+	// intersect with another mask of the same size
+	public MaskPlane and(MaskPlane other) {
+		for (int i = 0; i < _bits.length; i++) {
+			_bits[i] &= other._bits[i];
+		}
+		return this;
+	}
+
+	// unite with another mask of the same size
+	public MaskPlane or(MaskPlane other) {
+		for (int i = 0; i < _bits.length; i++) {
+			_bits[i] |= other._bits[i];
+		}
+		return this;
+	}
+
+	// remove the pixels of another mask of the same size
+	public MaskPlane andNot(MaskPlane other) {
+		for (int i = 0; i < _bits.length; i++) {
+			_bits[i] &= ~other._bits[i];
+		}
+		return this;
+	}
+
+	// swap set and unset pixels
+	public MaskPlane invert() {
+		for (int i = 0; i < _bits.length; i++) {
+			_bits[i] = ~_bits[i];
+		}
+		clearPadding(_bits);
+		return this;
+	}
+
+	// set every pixel within city block distance k of a set pixel (the same
+	// as VisionUtils.dilateRegions), one 4-neighbour step at a time
+	public MaskPlane dilate(int k) {
+		if (_work == null)
+			_work = new long[_bits.length];
+		// no pixel is further than width + height from another
+		k = Math.min(k, _nWidth + _nHeight);
+		for (int step = 0; step < k; step++) {
+			final long[] src = _bits;
+			final long[] dst = _work;
+			for (int y = 0; y < _nHeight; y++) {
+				final int row = y * _nWords;
+				for (int w = 0; w < _nWords; w++) {
+					final int i = row + w;
+					final long m = src[i];
+					long d = m | (m << 1) | (m >>> 1);
+					if (w > 0)
+						d |= src[i - 1] >>> 63;
+					if (w < _nWords - 1)
+						d |= src[i + 1] << 63;
+					if (y > 0)
+						d |= src[i - _nWords];
+					if (y < _nHeight - 1)
+						d |= src[i + _nWords];
+					dst[i] = d;
+				}
+			}
+			clearPadding(dst);
+			_work = src;
+			_bits = dst;
+		}
+		return this;
+	}
+
+	// clear every pixel within city block distance k of an unset pixel in
+	// the mask (the same as VisionUtils.erodeRegions)
+	public MaskPlane erode(int k) {
+		return invert().dilate(k).invert();
+	}
+
+	// write the mask into image as ones and zeros
+	public int[][] toArray(int[][] image) {
+		for (int y = 0; y < _nHeight; y++) {
+			final int row = y * _nWords;
+			for (int x = 0; x < _nWidth; x++) {
+				image[y][x] = (int) (_bits[row + (x >> 6)] >>> x) & 1;
+			}
+		}
+		return image;
+	}
+
+	// row-major indices of the pixels set, in increasing order
+	public int[] pixels() {
+		int[] pixels = new int[count()];
+		int n = 0;
+		for (int y = 0; y < _nHeight; y++) {
+			for (int w = 0; w < _nWords; w++) {
+				long bits = _bits[y * _nWords + w];
+				while (bits != 0) {
+					pixels[n++] = y * _nWidth + 64 * w
+							+ Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+				}
+			}
+		}
+		return pixels;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof MaskPlane))
+			return false;
+		final MaskPlane other = (MaskPlane) o;
+		return (_nWidth == other._nWidth) && (_nHeight == other._nHeight)
+				&& Arrays.equals(_bits, other._bits);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(_bits);
+	}
+
+	// clear the bits past the last pixel of every row
+	private void clearPadding(long[] bits) {
+		if (_lastWord == -1L)
+			return;
+		for (int i = _nWords - 1; i < bits.length; i += _nWords) {
+			bits[i] &= _lastWord;
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/* ObjectTracker ---------------------------------------------------------- */
+
+// follows birds, pigs and blocks across the frames of a scene, giving each
+// object an id that stays the same while it moves. frames are processed
+// with Vision.update, so only the tiles that changed are segmented again;
+// objects away from the changed tiles keep their position without being
+// matched, and detections are only matched (by kind, position and size,
+// against the position predicted from their velocity) near the change and
+// around objects lost in earlier frames
+public class ObjectTracker {
+
+	// kinds of objects tracked (objects are only matched within a kind)
+	public enum Kind {
+		PIG, RED_BIRD, BLUE_BIRD, YELLOW_BIRD, WHITE_BIRD, BLACK_BIRD, TNT, STONE, ICE, WOOD
+	}
+
+	// an object followed across frames
+	public static class TrackedObject {
+		private final int _id;
+		private final Kind _kind;
+		private final Rectangle _bounds;
+		private double _vx, _vy; // velocity in pixels per frame
+		private int _nAge; // frames since first seen
+		private int _nMissed; // frames since last seen
+
+		TrackedObject(int id, Kind kind, Rectangle bounds) {
+			_id = id;
+			_kind = kind;
+			_bounds = new Rectangle(bounds);
+		}
+
+		public int getId() {
+			return _id;
+		}
+
+		public Kind getKind() {
+			return _kind;
+		}
+
+		// bounding box where the object was last seen
+		public Rectangle getBounds() {
+			return new Rectangle(_bounds);
+		}
+
+		public double getVelocityX() {
+			return _vx;
+		}
+
+		public double getVelocityY() {
+			return _vy;
+		}
+
+		public int getAge() {
+			return _nAge;
+		}
+
+		// number of frames the object has not been seen for
+		public int getMissed() {
+			return _nMissed;
+		}
+
+		// bounding box expected frames after the object was last seen
+		public Rectangle predict(int frames) {
+			return new Rectangle(_bounds.x + (int) Math.round(_vx * frames),
+					_bounds.y + (int) Math.round(_vy * frames), _bounds.width,
+					_bounds.height);
+		}
+
+		@Override
+		public String toString() {
+			return _kind + " #" + _id + " " + _bounds;
+		}
+	}
+
+	private final int _nMaxMissed; // frames an object may go unseen
+	private final int _nMaxDistance; // furthest match from the prediction
+	private Vision _vision; // vision of the latest frame
+	private List<TrackedObject> _objects = new ArrayList<TrackedObject>();
+	private int _nextId = 0;
+
+	// track objects that may go unseen for up to 3 frames and move up to 40
+	// pixels a frame beyond their predicted motion
+	public ObjectTracker() {
+		this(3, 40);
+	}
+
+	public ObjectTracker(int maxMissed, int maxDistance) {
+		_nMaxMissed = maxMissed;
+		_nMaxDistance = maxDistance;
+	}
+
+	// vision of the latest frame (null before the first)
+	public Vision getVision() {
+		return _vision;
+	}
+
+	// objects currently tracked
+	public List<TrackedObject> getObjects() {
+		return new ArrayList<TrackedObject>(_objects);
+	}
+
+	// objects of one kind currently tracked
+	public List<TrackedObject> getObjects(Kind kind) {
+		List<TrackedObject> objects = new ArrayList<TrackedObject>();
+		for (TrackedObject o : _objects) {
+			if (o.getKind() == kind)
+				objects.add(o);
+		}
+		return objects;
+	}
+
+	// tracked object with the given id (or null if it was lost)
+	public TrackedObject getObject(int id) {
+		for (TrackedObject o : _objects) {
+			if (o.getId() == id)
+				return o;
+		}
+		return null;
+	}
+
+	// forget every object (e.g. when a new level starts)
+	public void clear() {
+		_objects.clear();
+		_vision = null;
+	}
+
+	// process the next frame of the scene
+	public void update(BufferedImage screenshot) {
+		if (_vision == null) {
+			_vision = Vision.incremental(screenshot);
+		} else {
+			_vision.update(screenshot);
+		}
+		for (TrackedObject o : _objects) {
+			o._nAge++;
+		}
+
+		// detections are looked for where the scene changed, and where
+		// objects already lost were or are predicted to be, as they may
+		// show up again outside the change
+		final List<Rectangle> changed = _vision.getChangedRegion();
+		List<Rectangle> searched = new ArrayList<Rectangle>(changed);
+		for (TrackedObject o : _objects) {
+			if (o._nMissed > 0) {
+				searched.add(o._bounds);
+				searched.add(o.predict(o._nMissed + 1));
+			}
+		}
+		if (searched.isEmpty())
+			return;
+
+		List<TrackedObject> kept = new ArrayList<TrackedObject>();
+		for (Kind kind : Kind.values()) {
+			// objects away from the change (and not already lost) stay put
+			List<TrackedObject> tracks = new ArrayList<TrackedObject>();
+			List<Rectangle> unmoved = new ArrayList<Rectangle>();
+			for (TrackedObject o : _objects) {
+				if (o.getKind() != kind)
+					continue;
+				if ((o._nMissed == 0) && !intersects(o._bounds, changed)) {
+					o._vx = o._vy = 0;
+					kept.add(o);
+					unmoved.add(o._bounds);
+				} else {
+					tracks.add(o);
+				}
+			}
+			// (the detections of objects staying put are theirs already)
+			List<Rectangle> detections = new ArrayList<Rectangle>();
+			for (Rectangle r : detect(kind)) {
+				if (intersects(r, searched) && !unmoved.contains(r))
+					detections.add(r);
+			}
+			match(kind, tracks, detections, kept);
+		}
+		_objects = kept;
+	}
+
+	// match tracks of a kind to detections, greedily in order of increasing
+	// distance from their predicted position, adding the tracks still
+	// followed and new tracks for unmatched detections to kept
+	private void match(Kind kind, List<TrackedObject> tracks,
+			List<Rectangle> detections, List<TrackedObject> kept) {
+		final int nTracks = tracks.size();
+		final int nDetections = detections.size();
+		final double[] cost = new double[nTracks * nDetections];
+		List<Integer> pairs = new ArrayList<Integer>();
+		for (int t = 0; t < nTracks; t++) {
+			final TrackedObject o = tracks.get(t);
+			final Rectangle p = o.predict(o._nMissed + 1);
+			for (int d = 0; d < nDetections; d++) {
+				final Rectangle r = detections.get(d);
+				final double distance = Math.hypot(r.getCenterX()
+						- p.getCenterX(), r.getCenterY() - p.getCenterY());
+				final double area = (double) r.width * r.height;
+				final double trackArea = (double) p.width * p.height;
+				if ((distance > _nMaxDistance) || (area > 2 * trackArea)
+						|| (trackArea > 2 * area))
+					continue;
+				cost[t * nDetections + d] = distance
+						+ Math.abs(r.width - p.width)
+						+ Math.abs(r.height - p.height);
+				pairs.add(t * nDetections + d);
+			}
+		}
+		Integer[] order = pairs.toArray(new Integer[pairs.size()]);
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(cost[a], cost[b]);
+			}
+		});
+
+		boolean[] trackMatched = new boolean[nTracks];
+		boolean[] detectionMatched = new boolean[nDetections];
+		for (int pair : order) {
+			final int t = pair / nDetections;
+			final int d = pair % nDetections;
+			if (trackMatched[t] || detectionMatched[d])
+				continue;
+			trackMatched[t] = detectionMatched[d] = true;
+
+			// smooth the velocity over the frames since last seen
+			final TrackedObject o = tracks.get(t);
+			final Rectangle r = detections.get(d);
+			final double vx = (r.getCenterX() - o._bounds.getCenterX())
+					/ (o._nMissed + 1);
+			final double vy = (r.getCenterY() - o._bounds.getCenterY())
+					/ (o._nMissed + 1);
+			o._vx = (o._nAge <= 1) ? vx : (o._vx + vx) / 2;
+			o._vy = (o._nAge <= 1) ? vy : (o._vy + vy) / 2;
+			o._bounds.setBounds(r);
+			o._nMissed = 0;
+			kept.add(o);
+		}
+
+		// tracks not seen are kept for a few frames, in case the object was
+		// hidden or missed by the detector
+		for (int t = 0; t < nTracks; t++) {
+			final TrackedObject o = tracks.get(t);
+			if (!trackMatched[t] && (++o._nMissed <= _nMaxMissed))
+				kept.add(o);
+		}
+		for (int d = 0; d < nDetections; d++) {
+			if (!detectionMatched[d])
+				kept.add(new TrackedObject(_nextId++, kind, detections.get(d)));
+		}
+	}
+
+	// detections of a kind in the latest frame
+	private List<Rectangle> detect(Kind kind) {
+		switch (kind) {
+		case PIG:
+			return _vision.findPigs();
+		case RED_BIRD:
+			return _vision.findRedBirds();
+		case BLUE_BIRD:
+			return _vision.findBlueBirds();
+		case YELLOW_BIRD:
+			return _vision.findYellowBirds();
+		case WHITE_BIRD:
+			return _vision.findWhiteBirds();
+		case BLACK_BIRD:
+			return _vision.findBlackBirds();
+		case TNT:
+			return _vision.findTNTs();
+		case STONE:
+			return _vision.findStones();
+		case ICE:
+			return _vision.findIce();
+		default:
+			return _vision.findWood();
+		}
+	}
+
+	// check if a rectangle overlaps any of a list of rectangles
+	private static boolean intersects(Rectangle r, List<Rectangle> region) {
+		for (Rectangle q : region) {
+			if (r.intersects(q))
+				return true;
+		}
+		return false;
+	}
+}
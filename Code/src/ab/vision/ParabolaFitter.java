@@ -0,0 +1,160 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Point;
+import java.util.List;
+
+/* ParabolaFitter --------------------------------------------------------- */
+
+// least squares fit of a parabola y = a x^2 + b x + c to points added one
+// at a time. only the sums of the normal equations are kept, so adding or
+// removing a point takes constant time and solving the 3x3 system needs no
+// allocation
+public class ParabolaFitter {
+
+	private int _nPoints; // number of points added
+	private double _sx, _sxx, _sxxx, _sxxxx; // sums of powers of x
+	private double _sy, _sxy, _sxxy; // sums of y times powers of x
+	private double _a, _b, _c; // parameters of the last solution
+	private final double _system[] = new double[12]; // 3x4 augmented matrix
+	private final double _scale[] = new double[3]; // largest sum by column
+
+	public void clear() {
+		_nPoints = 0;
+		_sx = _sxx = _sxxx = _sxxxx = 0;
+		_sy = _sxy = _sxxy = 0;
+	}
+
+	public void add(double x, double y) {
+		accumulate(x, y, 1);
+	}
+
+	// remove a point added before
+	public void remove(double x, double y) {
+		accumulate(x, y, -1);
+	}
+
+	// number of points added (and not removed)
+	public int size() {
+		return _nPoints;
+	}
+
+	// solve the normal equations for the points added. returns false (and
+	// sets every parameter to zero) if they do not determine a parabola
+	public boolean solve() {
+		final double[] m = _system;
+		setRow(0, _sxxxx, _sxxx, _sxx, _sxxy);
+		setRow(1, _sxxx, _sxx, _sx, _sxy);
+		setRow(2, _sxx, _sx, _nPoints, _sy);
+		for (int col = 0; col < 3; col++) {
+			_scale[col] = Math.max(Math.abs(m[col]), Math.max(Math
+					.abs(m[4 + col]), Math.abs(m[8 + col])));
+		}
+
+		// gaussian elimination with partial pivoting
+		for (int col = 0; col < 3; col++) {
+			int pivot = col;
+			for (int row = col + 1; row < 3; row++) {
+				if (Math.abs(m[4 * row + col]) > Math.abs(m[4 * pivot + col]))
+					pivot = row;
+			}
+			// singular (relative to the largest sum in the column)
+			if (Math.abs(m[4 * pivot + col]) <= 1e-12 * _scale[col])
+				return fail();
+			if (pivot != col) {
+				for (int k = col; k < 4; k++) {
+					final double t = m[4 * col + k];
+					m[4 * col + k] = m[4 * pivot + k];
+					m[4 * pivot + k] = t;
+				}
+			}
+			for (int row = col + 1; row < 3; row++) {
+				final double f = m[4 * row + col] / m[4 * col + col];
+				for (int k = col; k < 4; k++) {
+					m[4 * row + k] -= f * m[4 * col + k];
+				}
+			}
+		}
+
+		// back substitution
+		_c = m[11] / m[10];
+		_b = (m[7] - m[6] * _c) / m[5];
+		_a = (m[3] - m[2] * _c - m[1] * _b) / m[0];
+		if (Double.isNaN(_a) || Double.isNaN(_b) || Double.isNaN(_c))
+			return fail();
+		return true;
+	}
+
+	// after solve, fit the points within maxError of the solution again, until
+	// the same points are kept or after maxIterations fits, so that a few
+	// stray points do not pull the parabola away from the others. returns
+	// the number of points kept
+	public int refit(List<Point> points, double maxError, int maxIterations) {
+		int nKept = -1;
+		for (int it = 0; it < maxIterations; it++) {
+			final double a = _a, b = _b, c = _c;
+			clear();
+			for (Point p : points) {
+				if (Math.abs(a * p.x * p.x + b * p.x + c - p.y) <= maxError)
+					add(p.x, p.y);
+			}
+			if (!solve() || (_nPoints == nKept))
+				break;
+			nKept = _nPoints;
+		}
+		return _nPoints;
+	}
+
+	// coefficient of x^2
+	public double getA() {
+		return _a;
+	}
+
+	// coefficient of x
+	public double getB() {
+		return _b;
+	}
+
+	// constant term
+	public double getC() {
+		return _c;
+	}
+
+	// height of the parabola at x
+	public double evaluate(double x) {
+		return (_a * x + _b) * x + _c;
+	}
+
+	private void setRow(int row, double m0, double m1, double m2, double y) {
+		_system[4 * row] = m0;
+		_system[4 * row + 1] = m1;
+		_system[4 * row + 2] = m2;
+		_system[4 * row + 3] = y;
+	}
+
+	private void accumulate(double x, double y, int sign) {
+		final double xx = x * x;
+		_nPoints += sign;
+		_sx += sign * x;
+		_sxx += sign * xx;
+		_sxxx += sign * xx * x;
+		_sxxxx += sign * xx * xx;
+		_sy += sign * y;
+		_sxy += sign * x * y;
+		_sxxy += sign * xx * y;
+	}
+
+	private boolean fail() {
+		_a = _b = _c = 0;
+		return false;
+	}
+}
@@ -0,0 +1,133 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+/* PixelKernels ----------------------------------------------------------- */
+
+// per-pixel loops over rows of ARGB colours, in two forms giving identical
+// results: vector kernels, written so that a JIT compiler can turn them into
+// SIMD instructions (HotSpot does so with whichever of SSE, AVX2 or AVX-512
+// the host has), and the scalar loops they replace. nothing about the JVM or
+// the host is detected: the vector kernels are the default everywhere, as
+// even when not vectorized (interpreted, with -Xint) they are faster
+// overall, and PROPERTY can switch back to the scalar ones
+public class PixelKernels {
+
+	// system property choosing the kernels ("vector", the default, or
+	// "scalar")
+	public static final String PROPERTY = "ab.vision.kernels";
+
+	// whether the vector kernels are used
+	public static final boolean VECTORIZED = useVectorKernels();
+
+	// quantize a row of n colours to 3-bit colour into scene[offset] to
+	// scene[offset + n - 1] (see Vision.quantize). the row is overwritten
+	public static void quantizeRow(int[] row, short[] scene, int offset, int n) {
+		if (VECTORIZED) {
+			quantizeRowVector(row, scene, offset, n);
+		} else {
+			quantizeRowScalar(row, scene, offset, n);
+		}
+	}
+
+	// sum of the absolute differences of the red, green and blue channels
+	// of the first n colours of two rows
+	public static int absoluteDifference(int[] rowA, int[] rowB, int n) {
+		return VECTORIZED ? absoluteDifferenceVector(rowA, rowB, n)
+				: absoluteDifferenceScalar(rowA, rowB, n);
+	}
+
+	// number of the first n colours that differ between two rows
+	public static int countDifferent(int[] rowA, int[] rowB, int n) {
+		return VECTORIZED ? countDifferentVector(rowA, rowB, n)
+				: countDifferentScalar(rowA, rowB, n);
+	}
+
+	// the quantized colours are computed in place as ints and narrowed to
+	// shorts afterwards: the JIT does not vectorize right shifts stored to
+	// shorts directly
+	static void quantizeRowVector(int[] row, short[] scene, int offset, int n) {
+		for (int x = 0; x < n; x++) {
+			final int colour = row[x];
+			row[x] = ((colour >> 15) & 0x1c0) | ((colour >> 10) & 0x38)
+					| ((colour >> 5) & 0x7);
+		}
+		for (int x = 0; x < n; x++) {
+			scene[offset + x] = (short) row[x];
+		}
+	}
+
+	static void quantizeRowScalar(int[] row, short[] scene, int offset, int n) {
+		for (int x = 0; x < n; x++) {
+			scene[offset + x] = Vision.quantize(row[x]);
+		}
+	}
+
+	// every channel is summed separately, so that the sums are reductions
+	// the JIT vectorizes
+	static int absoluteDifferenceVector(int[] rowA, int[] rowB, int n) {
+		int red = 0, green = 0, blue = 0;
+		for (int x = 0; x < n; x++) {
+			final int colourA = rowA[x];
+			final int colourB = rowB[x];
+			red += Math.abs(((colourA >> 16) & 0xff) - ((colourB >> 16) & 0xff));
+			green += Math.abs(((colourA >> 8) & 0xff) - ((colourB >> 8) & 0xff));
+			blue += Math.abs((colourA & 0xff) - (colourB & 0xff));
+		}
+		return red + green + blue;
+	}
+
+	static int absoluteDifferenceScalar(int[] rowA, int[] rowB, int n) {
+		int diff = 0;
+		for (int x = 0; x < n; x++) {
+			final int colourA = rowA[x];
+			final int colourB = rowB[x];
+
+			diff += Math.abs((int)((colourA & 0x00ff0000) >> 16) - (int)((colourB & 0x00ff0000) >> 16));
+			diff += Math.abs((int)((colourA & 0x0000ff00) >> 8) - (int)((colourB & 0x0000ff00) >> 8));
+			diff += Math.abs((int)(colourA & 0x000000ff) - (int)(colourB & 0x000000ff));
+		}
+		return diff;
+	}
+
+	// the sign bit of t | -t is set exactly when t is not zero, which avoids
+	// the branch that keeps the JIT from vectorizing the count
+	static int countDifferentVector(int[] rowA, int[] rowB, int n) {
+		int count = 0;
+		for (int x = 0; x < n; x++) {
+			final int t = rowA[x] ^ rowB[x];
+			count += (t | -t) >>> 31;
+		}
+		return count;
+	}
+
+	static int countDifferentScalar(int[] rowA, int[] rowB, int n) {
+		int count = 0;
+		for (int x = 0; x < n; x++) {
+			if (rowA[x] != rowB[x]) {
+				count += 1;
+			}
+		}
+		return count;
+	}
+
+	// use the vector kernels unless PROPERTY asks for the scalar ones (a
+	// fixed default, not a check of what the JVM can do)
+	private static boolean useVectorKernels() {
+		final String value = System.getProperty(PROPERTY, "vector");
+		if (value.equals("scalar"))
+			return false;
+		if (!value.equals("vector"))
+			System.err.println("ERROR: ignoring " + PROPERTY + "=" + value
+					+ " (expecting vector or scalar)");
+		return true;
+	}
+}
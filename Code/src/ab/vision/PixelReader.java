@@ -0,0 +1,171 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/* PixelReader ------------------------------------------------------------ */
+
+// reads pixels of a BufferedImage as ARGB values (exactly as getRGB gives
+// them) directly from the data buffer for the image types returned by
+// ImageIO, instead of converting every pixel through the ColorModel. other
+// image types fall back to getRGB. sub-images are supported. a reader does
+// not change state while reading, so it can be shared between threads
+public class PixelReader {
+
+	// how pixels are laid out in the data buffer
+	private static final int GENERIC = 0; // use BufferedImage.getRGB
+	private static final int INT_RGB = 1; // packed 0x00rrggbb
+	private static final int INT_ARGB = 2; // packed 0xaarrggbb
+	private static final int BYTE_BGR = 3; // interleaved bytes
+	private static final int BYTE_ABGR = 4; // interleaved bytes with alpha
+
+	private final BufferedImage _image;
+	private final int _nWidth; // width of the image
+	private final int _nHeight; // height of the image
+	private final int _layout; // one of the layouts above
+	private final int _ints[]; // data of int images
+	private final byte _bytes[]; // data of byte images
+	private final int _origin; // index of pixel (0, 0) in the data
+	private final int _scanline; // data elements per row
+	private final int _pixelStride; // data elements per pixel
+	private final int _red, _green, _blue, _alpha; // band offsets
+
+	public PixelReader(BufferedImage image) {
+		_image = image;
+		_nWidth = image.getWidth();
+		_nHeight = image.getHeight();
+
+		final Raster raster = image.getRaster();
+		final DataBuffer buffer = raster.getDataBuffer();
+		final int tx = -raster.getSampleModelTranslateX();
+		final int ty = -raster.getSampleModelTranslateY();
+		final int type = image.getType();
+
+		int layout = GENERIC;
+		int[] ints = null;
+		byte[] bytes = null;
+		int origin = 0, scanline = 0, pixelStride = 1;
+		int red = 0, green = 0, blue = 0, alpha = 0;
+		if (((type == BufferedImage.TYPE_INT_RGB) || (type == BufferedImage.TYPE_INT_ARGB))
+				&& (buffer instanceof DataBufferInt)
+				&& (raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+			final SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster
+					.getSampleModel();
+			layout = (type == BufferedImage.TYPE_INT_RGB) ? INT_RGB : INT_ARGB;
+			ints = ((DataBufferInt) buffer).getData();
+			scanline = sm.getScanlineStride();
+			origin = buffer.getOffset() + ty * scanline + tx;
+		} else if (((type == BufferedImage.TYPE_3BYTE_BGR) || (type == BufferedImage.TYPE_4BYTE_ABGR))
+				&& (buffer instanceof DataBufferByte)
+				&& (raster.getSampleModel() instanceof ComponentSampleModel)) {
+			final ComponentSampleModel sm = (ComponentSampleModel) raster
+					.getSampleModel();
+			final int[] bands = sm.getBandOffsets();
+			layout = (type == BufferedImage.TYPE_3BYTE_BGR) ? BYTE_BGR
+					: BYTE_ABGR;
+			bytes = ((DataBufferByte) buffer).getData();
+			scanline = sm.getScanlineStride();
+			pixelStride = sm.getPixelStride();
+			origin = buffer.getOffset() + ty * scanline + tx * pixelStride;
+			red = bands[0];
+			green = bands[1];
+			blue = bands[2];
+			if (layout == BYTE_ABGR)
+				alpha = bands[3];
+		}
+
+		_layout = layout;
+		_ints = ints;
+		_bytes = bytes;
+		_origin = origin;
+		_scanline = scanline;
+		_pixelStride = pixelStride;
+		_red = red;
+		_green = green;
+		_blue = blue;
+		_alpha = alpha;
+	}
+
+	public int getWidth() {
+		return _nWidth;
+	}
+
+	public int getHeight() {
+		return _nHeight;
+	}
+
+	// check if pixels are read from the data buffer (rather than by getRGB)
+	public boolean isDirect() {
+		return _layout != GENERIC;
+	}
+
+	// ARGB colour of pixel (x, y)
+	public int getRGB(int x, int y) {
+		switch (_layout) {
+		case INT_RGB:
+			return 0xff000000 | _ints[_origin + y * _scanline + x];
+		case INT_ARGB:
+			return _ints[_origin + y * _scanline + x];
+		case BYTE_BGR:
+		case BYTE_ABGR: {
+			final int p = _origin + y * _scanline + x * _pixelStride;
+			final int a = (_layout == BYTE_ABGR) ? (_bytes[p + _alpha] & 0xff)
+					: 0xff;
+			return (a << 24) | ((_bytes[p + _red] & 0xff) << 16)
+					| ((_bytes[p + _green] & 0xff) << 8)
+					| (_bytes[p + _blue] & 0xff);
+		}
+		default:
+			return _image.getRGB(x, y);
+		}
+	}
+
+	// read the ARGB colours of row y into row[0] to row[width - 1]
+	public void readRow(int y, int[] row) {
+		final int w = _nWidth;
+		switch (_layout) {
+		case INT_RGB: {
+			final int start = _origin + y * _scanline;
+			for (int x = 0; x < w; x++) {
+				row[x] = 0xff000000 | _ints[start + x];
+			}
+			break;
+		}
+		case INT_ARGB:
+			System.arraycopy(_ints, _origin + y * _scanline, row, 0, w);
+			break;
+		case BYTE_BGR:
+			for (int x = 0, p = _origin + y * _scanline; x < w; x++, p += _pixelStride) {
+				row[x] = 0xff000000 | ((_bytes[p + _red] & 0xff) << 16)
+						| ((_bytes[p + _green] & 0xff) << 8)
+						| (_bytes[p + _blue] & 0xff);
+			}
+			break;
+		case BYTE_ABGR:
+			for (int x = 0, p = _origin + y * _scanline; x < w; x++, p += _pixelStride) {
+				row[x] = ((_bytes[p + _alpha] & 0xff) << 24)
+						| ((_bytes[p + _red] & 0xff) << 16)
+						| ((_bytes[p + _green] & 0xff) << 8)
+						| (_bytes[p + _blue] & 0xff);
+			}
+			break;
+		default:
+			_image.getRGB(0, y, w, 1, row, 0, w);
+		}
+	}
+}
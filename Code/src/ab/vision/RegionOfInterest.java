@@ -0,0 +1,124 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/* RegionOfInterest ------------------------------------------------------- */
+
+// the part of the scene a Vision object processes: pixels inside any of the
+// included rectangles (or anywhere, if none are given) and outside all of
+// the excluded rectangles. pixels outside the region are never quantized,
+// labeled or detected
+public class RegionOfInterest {
+
+	// margin kept below the ground line by the default region
+	public static final int GROUND_MARGIN = 10;
+
+	// heads up display in the top left corner of the scene
+	public static final Rectangle HUD = new Rectangle(0, 0, 190, 55);
+
+	private final List<Rectangle> _include;
+	private final List<Rectangle> _exclude;
+
+	// create a region from included and excluded rectangles (either may be
+	// null or empty)
+	public RegionOfInterest(List<Rectangle> include, List<Rectangle> exclude) {
+		_include = new ArrayList<Rectangle>();
+		_exclude = new ArrayList<Rectangle>();
+		if (include != null) {
+			for (Rectangle r : include) {
+				_include.add(new Rectangle(r));
+			}
+		}
+		if (exclude != null) {
+			for (Rectangle r : exclude) {
+				_exclude.add(new Rectangle(r));
+			}
+		}
+	}
+
+	// default region for a level: everything above the ground line (plus a
+	// small margin, so that objects resting on the ground are kept) except
+	// the heads up display. the slingshot stands on the ground, so its base
+	// is used if no ground line is known (groundLine < 0). if neither is
+	// known only the heads up display is excluded
+	public static RegionOfInterest aboveGround(Rectangle slingshot,
+			int groundLine, int width, int height) {
+		if ((groundLine < 0) && (slingshot != null))
+			groundLine = slingshot.y + slingshot.height;
+
+		List<Rectangle> include = null;
+		if (groundLine >= 0) {
+			include = new ArrayList<Rectangle>();
+			include.add(new Rectangle(0, 0, width, Math.min(height,
+					groundLine + GROUND_MARGIN)));
+		}
+		return new RegionOfInterest(include, Arrays.asList(HUD));
+	}
+
+	public List<Rectangle> getIncluded() {
+		return SceneSnapshot.copyOf(_include);
+	}
+
+	public List<Rectangle> getExcluded() {
+		return SceneSnapshot.copyOf(_exclude);
+	}
+
+	// check if pixel (x, y) is in the region
+	public boolean contains(int x, int y) {
+		boolean included = _include.isEmpty();
+		for (Rectangle r : _include) {
+			if (r.contains(x, y)) {
+				included = true;
+				break;
+			}
+		}
+		if (!included)
+			return false;
+		for (Rectangle r : _exclude) {
+			if (r.contains(x, y))
+				return false;
+		}
+		return true;
+	}
+
+	// row-major mask of the pixels of a width-by-height scene in the region
+	public boolean[] mask(int width, int height) {
+		boolean[] mask = new boolean[width * height];
+		if (_include.isEmpty()) {
+			Arrays.fill(mask, true);
+		} else {
+			for (Rectangle r : _include) {
+				setMask(mask, width, height, r, true);
+			}
+		}
+		for (Rectangle r : _exclude) {
+			setMask(mask, width, height, r, false);
+		}
+		return mask;
+	}
+
+	// set the pixels of mask inside rectangle r (cropped to the scene)
+	private static void setMask(boolean[] mask, int width, int height,
+			Rectangle r, boolean value) {
+		final int x0 = Math.max(0, r.x);
+		final int x1 = Math.min(width, r.x + r.width);
+		final int y1 = Math.min(height, r.y + r.height);
+		for (int y = Math.max(0, r.y); y < y1; y++) {
+			if (x0 < x1)
+				Arrays.fill(mask, y * width + x0, y * width + x1, value);
+		}
+	}
+}
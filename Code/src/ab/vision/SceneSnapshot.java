@@ -0,0 +1,129 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/* SceneSnapshot ---------------------------------------------------------- */
+
+// immutable result of running every detector of a Vision object once (see
+// Vision.detectAll). getters return copies, so callers may modify them
+public class SceneSnapshot {
+
+	private final Rectangle _slingshot;
+	private final List<Rectangle> _pigs;
+	private final List<Rectangle> _redBirds;
+	private final List<Rectangle> _blueBirds;
+	private final List<Rectangle> _yellowBirds;
+	private final List<Rectangle> _whiteBirds;
+	private final List<Rectangle> _blackBirds;
+	private final List<Rectangle> _tnts;
+	private final List<Rectangle> _stones;
+	private final List<Rectangle> _ice;
+	private final List<Rectangle> _wood;
+	private final List<Point> _trajPoints;
+
+	SceneSnapshot(Rectangle slingshot, List<Rectangle> pigs,
+			List<Rectangle> redBirds, List<Rectangle> blueBirds,
+			List<Rectangle> yellowBirds, List<Rectangle> whiteBirds,
+			List<Rectangle> blackBirds, List<Rectangle> tnts,
+			List<Rectangle> stones, List<Rectangle> ice, List<Rectangle> wood,
+			List<Point> trajPoints) {
+		_slingshot = (slingshot == null) ? null : new Rectangle(slingshot);
+		_pigs = copyOf(pigs);
+		_redBirds = copyOf(redBirds);
+		_blueBirds = copyOf(blueBirds);
+		_yellowBirds = copyOf(yellowBirds);
+		_whiteBirds = copyOf(whiteBirds);
+		_blackBirds = copyOf(blackBirds);
+		_tnts = copyOf(tnts);
+		_stones = copyOf(stones);
+		_ice = copyOf(ice);
+		_wood = copyOf(wood);
+		_trajPoints = copyOfPoints(trajPoints);
+	}
+
+	// slingshot or null if none was found
+	public Rectangle getSlingshot() {
+		return (_slingshot == null) ? null : new Rectangle(_slingshot);
+	}
+
+	public List<Rectangle> getPigs() {
+		return copyOf(_pigs);
+	}
+
+	public List<Rectangle> getRedBirds() {
+		return copyOf(_redBirds);
+	}
+
+	public List<Rectangle> getBlueBirds() {
+		return copyOf(_blueBirds);
+	}
+
+	public List<Rectangle> getYellowBirds() {
+		return copyOf(_yellowBirds);
+	}
+
+	public List<Rectangle> getWhiteBirds() {
+		return copyOf(_whiteBirds);
+	}
+
+	public List<Rectangle> getBlackBirds() {
+		return copyOf(_blackBirds);
+	}
+
+	public List<Rectangle> getTNTs() {
+		return copyOf(_tnts);
+	}
+
+	public List<Rectangle> getStones() {
+		return copyOf(_stones);
+	}
+
+	public List<Rectangle> getIce() {
+		return copyOf(_ice);
+	}
+
+	public List<Rectangle> getWood() {
+		return copyOf(_wood);
+	}
+
+	public List<Point> getTrajPoints() {
+		return copyOfPoints(_trajPoints);
+	}
+
+	// number of birds of all kinds
+	public int getBirdCount() {
+		return _redBirds.size() + _blueBirds.size() + _yellowBirds.size()
+				+ _whiteBirds.size() + _blackBirds.size();
+	}
+
+	// deep copy of a list of rectangles
+	static ArrayList<Rectangle> copyOf(List<Rectangle> rects) {
+		ArrayList<Rectangle> copy = new ArrayList<Rectangle>(rects.size());
+		for (Rectangle r : rects) {
+			copy.add(new Rectangle(r));
+		}
+		return copy;
+	}
+
+	// deep copy of a list of points
+	static ArrayList<Point> copyOfPoints(List<Point> points) {
+		ArrayList<Point> copy = new ArrayList<Point>(points.size());
+		for (Point p : points) {
+			copy.add(new Point(p));
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,183 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/* SegmentGrid ------------------------------------------------------------ */
+
+// uniform grid over the bounding boxes of a set of segments. entries keep
+// the order in which the segments were given (increasing segment id), and
+// every cell lists its entries in that order
+public class SegmentGrid {
+
+	// default width and height of a grid cell in pixels
+	public static final int CELL_SIZE = 32;
+
+	private final int _nCellSize; // width and height of a cell
+	private final int _nCols; // number of cell columns
+	private final int _nRows; // number of cell rows
+	private final int _ids[]; // segment id of each entry
+	private final Rectangle _rects[]; // rectangle of each entry
+	private final int _cellStart[]; // first index in _cellEntries per cell
+	private final int _cellEntries[]; // entries overlapping each cell
+	private final int _seen[]; // query in which an entry was last reported
+	private int _query = 0; // current query
+
+	// create a grid over a width-by-height scene with rectangle rects[i] for
+	// segment ids[i]
+	public SegmentGrid(int width, int height, int[] ids, Rectangle[] rects) {
+		this(width, height, ids, rects, CELL_SIZE);
+	}
+
+	public SegmentGrid(int width, int height, int[] ids, Rectangle[] rects,
+			int cellSize) {
+		_nCellSize = cellSize;
+		_nCols = Math.max(1, (width + cellSize - 1) / cellSize);
+		_nRows = Math.max(1, (height + cellSize - 1) / cellSize);
+		_ids = ids;
+		_rects = rects;
+		_seen = new int[ids.length];
+
+		// count entries per cell, then fill the cells in entry order
+		_cellStart = new int[_nCols * _nRows + 1];
+		for (int e = 0; e < ids.length; e++) {
+			final Rectangle r = rects[e];
+			if ((r.width <= 0) || (r.height <= 0))
+				continue;
+			for (int cy = row(r.y); cy <= row(r.y + r.height - 1); cy++) {
+				for (int cx = col(r.x); cx <= col(r.x + r.width - 1); cx++) {
+					_cellStart[cy * _nCols + cx + 1]++;
+				}
+			}
+		}
+		for (int c = 0; c < _nCols * _nRows; c++) {
+			_cellStart[c + 1] += _cellStart[c];
+		}
+
+		_cellEntries = new int[_cellStart[_nCols * _nRows]];
+		int[] fill = Arrays.copyOf(_cellStart, _nCols * _nRows);
+		for (int e = 0; e < ids.length; e++) {
+			final Rectangle r = rects[e];
+			if ((r.width <= 0) || (r.height <= 0))
+				continue;
+			for (int cy = row(r.y); cy <= row(r.y + r.height - 1); cy++) {
+				for (int cx = col(r.x); cx <= col(r.x + r.width - 1); cx++) {
+					_cellEntries[fill[cy * _nCols + cx]++] = e;
+				}
+			}
+		}
+	}
+
+	// number of entries
+	public int size() {
+		return _ids.length;
+	}
+
+	// segment id of entry e
+	public int id(int e) {
+		return _ids[e];
+	}
+
+	// rectangle of entry e
+	public Rectangle rect(int e) {
+		return _rects[e];
+	}
+
+	// the first entry after entry after whose rectangle intersects r, or -1
+	public int next(Rectangle r, int after) {
+		if ((r.width <= 0) || (r.height <= 0))
+			return -1;
+
+		int best = -1;
+		final int cx1 = col(r.x + r.width - 1);
+		final int cy1 = row(r.y + r.height - 1);
+		for (int cy = row(r.y); cy <= cy1; cy++) {
+			for (int cx = col(r.x); cx <= cx1; cx++) {
+				final int c = cy * _nCols + cx;
+				// cells list entries in increasing order, so the scan starts
+				// at the first entry after after
+				for (int k = firstAfter(c, after); k < _cellStart[c + 1]; k++) {
+					final int e = _cellEntries[k];
+					if ((best >= 0) && (e >= best))
+						break;
+					if (r.intersects(_rects[e])) {
+						best = e;
+						break;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	// all entries whose rectangle intersects r, in increasing order
+	public int[] intersecting(Rectangle r) {
+		if ((r.width <= 0) || (r.height <= 0))
+			return new int[0];
+
+		if (++_query == Integer.MAX_VALUE) {
+			Arrays.fill(_seen, 0);
+			_query = 1;
+		}
+
+		int[] found = new int[16];
+		int n = 0;
+		final int cx1 = col(r.x + r.width - 1);
+		final int cy1 = row(r.y + r.height - 1);
+		for (int cy = row(r.y); cy <= cy1; cy++) {
+			for (int cx = col(r.x); cx <= cx1; cx++) {
+				final int c = cy * _nCols + cx;
+				for (int k = _cellStart[c]; k < _cellStart[c + 1]; k++) {
+					final int e = _cellEntries[k];
+					if (_seen[e] == _query)
+						continue;
+					_seen[e] = _query;
+					if (r.intersects(_rects[e])) {
+						if (n == found.length)
+							found = Arrays.copyOf(found, 2 * n);
+						found[n++] = e;
+					}
+				}
+			}
+		}
+
+		found = Arrays.copyOf(found, n);
+		Arrays.sort(found);
+		return found;
+	}
+
+	// index of the first entry of cell c greater than after, by binary search
+	private int firstAfter(int c, int after) {
+		int lo = _cellStart[c];
+		int hi = _cellStart[c + 1];
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (_cellEntries[mid] <= after) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// cell column of pixel column x (clamped to the grid)
+	private int col(int x) {
+		return Math.min(_nCols - 1, Math.max(0, x / _nCellSize));
+	}
+
+	// cell row of pixel row y (clamped to the grid)
+	private int row(int y) {
+		return Math.min(_nRows - 1, Math.max(0, y / _nCellSize));
+	}
+}
@@ -0,0 +1,184 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/* SegmentRuns ------------------------------------------------------------ */
+
+// run-length encoding of a labeled scene: every row is split into maximal
+// runs of pixels with the same label, stored row by row as the column the
+// run starts at and its label (a run ends where the next one in its row
+// starts). sky, ground and block interiors make long runs, so this is a
+// fraction of the size of the labels themselves. runs of a scene's
+// segments keep a copy of the colour of every label, so that they stay
+// usable on their own once the scene is gone
+public class SegmentRuns {
+
+	private final int _nWidth; // width of the scene
+	private final int _nHeight; // height of the scene
+	private final int _rowStart[]; // first run of each row (and one after)
+	private final short _startX[]; // column each run starts at
+	private final int _label[]; // label of each run
+	private final short _colours[]; // colour of each label (or null)
+
+	// encode row-major labels of a width-by-height scene
+	public SegmentRuns(int[] labels, int width, int height) {
+		this(labels, null, width, height);
+	}
+
+	// encode row-major labels of a width-by-height scene, keeping a copy of
+	// the colour of each label (colours[l] for label l, or null)
+	public SegmentRuns(int[] labels, short[] colours, int width, int height) {
+		_nWidth = width;
+		_nHeight = height;
+		_rowStart = new int[height + 1];
+		// room for runs averaging 8 pixels (grown if they are shorter)
+		short[] startX = new short[Math.max(16, width * height / 8)];
+		int[] label = new int[startX.length];
+		int nRuns = 0;
+		int maxLabel = -1;
+		for (int y = 0; y < height; y++) {
+			_rowStart[y] = nRuns;
+			final int i0 = y * width;
+			int l = labels[i0];
+			for (int x = 0; x < width; x++) {
+				if ((x > 0) && (labels[i0 + x] == l))
+					continue;
+				if (nRuns == startX.length) {
+					startX = Arrays.copyOf(startX, 2 * nRuns);
+					label = Arrays.copyOf(label, 2 * nRuns);
+				}
+				l = labels[i0 + x];
+				startX[nRuns] = (short) x;
+				label[nRuns] = l;
+				maxLabel = Math.max(maxLabel, l);
+				nRuns++;
+			}
+		}
+		_rowStart[height] = nRuns;
+		_startX = Arrays.copyOf(startX, nRuns);
+		_label = Arrays.copyOf(label, nRuns);
+		_colours = (colours == null) ? null : Arrays.copyOf(colours,
+				maxLabel + 1);
+	}
+
+	// encode a labeled image (such as TestVision.computeMetaInformation)
+	public static SegmentRuns fromLabels(int[][] labels) {
+		final int nHeight = labels.length;
+		final int nWidth = labels[0].length;
+		int[] flat = new int[nWidth * nHeight];
+		for (int y = 0; y < nHeight; y++) {
+			System.arraycopy(labels[y], 0, flat, y * nWidth, nWidth);
+		}
+		return new SegmentRuns(flat, nWidth, nHeight);
+	}
+
+	public int getWidth() {
+		return _nWidth;
+	}
+
+	public int getHeight() {
+		return _nHeight;
+	}
+
+	// total number of runs
+	public int size() {
+		return _label.length;
+	}
+
+	// runs of row y are getRowStart(y) to getRowStart(y + 1) - 1
+	public int getRowStart(int y) {
+		return _rowStart[y];
+	}
+
+	public int getRunX(int n) {
+		return _startX[n];
+	}
+
+	public int getRunLength(int n) {
+		return runEnd(n) - _startX[n];
+	}
+
+	public int getRunLabel(int n) {
+		return _label[n];
+	}
+
+	// label at pixel (x, y)
+	public int getLabel(int x, int y) {
+		return _label[findRun(x, y)];
+	}
+
+	// colour of label l (for runs encoded with colours)
+	public short getColour(int l) {
+		return _colours[l];
+	}
+
+	// number of bytes taken by the runs (and the colours of their labels)
+	public long memoryUsage() {
+		return 4L * _rowStart.length + 2L * _startX.length + 4L
+				* _label.length + ((_colours == null) ? 0 : 2L
+				* _colours.length);
+	}
+
+	// histogram of colours within a rectangle (cropped to the scene) for
+	// runs encoded with colours
+	public int[] histogram(Rectangle r) {
+		if (_colours == null)
+			throw new IllegalStateException("runs encoded without colours");
+		return histogram(r, _colours);
+	}
+
+	// histogram of colours within a rectangle (cropped to the scene), given
+	// the colour of each label; pixels with negative labels are not counted
+	public int[] histogram(Rectangle r, short[] colours) {
+		int[] h = new int[512];
+		final int x0 = Math.max(0, r.x);
+		final int x1 = Math.min(_nWidth, r.x + r.width);
+		final int y0 = Math.max(0, r.y);
+		final int y1 = Math.min(_nHeight, r.y + r.height);
+		if (x0 >= x1)
+			return h;
+		for (int y = y0; y < y1; y++) {
+			for (int n = findRun(x0, y); n < _rowStart[y + 1]; n++) {
+				final int start = _startX[n];
+				if (start >= x1)
+					break;
+				if (_label[n] >= 0)
+					h[colours[_label[n]]] += Math.min(x1, runEnd(n))
+							- Math.max(x0, start);
+			}
+		}
+		return h;
+	}
+
+	// run holding pixel (x, y), by binary search within its row
+	private int findRun(int x, int y) {
+		int lo = _rowStart[y];
+		int hi = _rowStart[y + 1] - 1;
+		while (lo < hi) {
+			final int mid = (lo + hi + 1) >>> 1;
+			if (_startX[mid] <= x) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	// column one after the last pixel of run n
+	private int runEnd(int n) {
+		return ((n + 1 < _label.length) && (_startX[n + 1] != 0)) ? _startX[n + 1]
+				: _nWidth;
+	}
+}
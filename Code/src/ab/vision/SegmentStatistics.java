@@ -0,0 +1,300 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/* SegmentStatistics ------------------------------------------------------ */
+
+// pixel count, colour, first pixel, extent and first and second order
+// moments of every segment of a labeled scene, one array per statistic.
+// the statistics are accumulated by the labeling itself (see
+// VisionUtils.findConnectedComponentsUnionFind), so that segments can be
+// classified and filtered without another pass over the pixels
+public class SegmentStatistics {
+
+	private final int _nWidth; // width of the scene
+	private int _nSegments; // number of segments
+	private int _count[]; // number of pixels
+	private int _first[]; // index of the first pixel (row-major)
+	private short _colour[]; // quantized colour
+	private int _minX[], _maxX[]; // horizontal extent (inclusive)
+	private int _minY[], _maxY[]; // vertical extent (inclusive)
+	private long _sumX[], _sumY[]; // first order moments
+	private long _sumXX[], _sumYY[], _sumXY[]; // second order moments
+
+	// create statistics for the segments of a scene of the given width
+	public SegmentStatistics(int width) {
+		_nWidth = width;
+		allocate(64);
+	}
+
+	// number of segments
+	public int size() {
+		return _nSegments;
+	}
+
+	// reset to nSegments segments without pixels
+	public void clear(int nSegments) {
+		if (_count.length < nSegments)
+			allocate(Math.max(nSegments, 2 * _count.length));
+		_nSegments = nSegments;
+		Arrays.fill(_count, 0, nSegments, 0);
+		Arrays.fill(_sumX, 0, nSegments, 0);
+		Arrays.fill(_sumY, 0, nSegments, 0);
+		Arrays.fill(_sumXX, 0, nSegments, 0);
+		Arrays.fill(_sumYY, 0, nSegments, 0);
+		Arrays.fill(_sumXY, 0, nSegments, 0);
+	}
+
+	public int getCount(int n) {
+		return _count[n];
+	}
+
+	public short getColour(int n) {
+		return _colour[n];
+	}
+
+	// row-major index of the first pixel of segment n
+	public int getFirstPixel(int n) {
+		return _first[n];
+	}
+
+	// bounding box of segment n, the same box as adding every pixel to a
+	// box of the first one with Rectangle.add (as Vision reports them)
+	public Rectangle getBoundingBox(int n) {
+		return getBoundingBox(n, new Rectangle());
+	}
+
+	// store the bounding box of segment n in box, returning it
+	public Rectangle getBoundingBox(int n, Rectangle box) {
+		final int firstX = _first[n] - _minY[n] * _nWidth;
+		box.setBounds(_minX[n], _minY[n], Math.max(firstX + 1, _maxX[n])
+				- _minX[n], Math.max(1, _maxY[n] - _minY[n]));
+		return box;
+	}
+
+	public double getCentroidX(int n) {
+		return (double) _sumX[n] / _count[n];
+	}
+
+	public double getCentroidY(int n) {
+		return (double) _sumY[n] / _count[n];
+	}
+
+	// second order central moments of segment n, normalised by its pixel
+	// count (the covariance of its pixel coordinates)
+	public double getMomentXX(int n) {
+		final double cx = getCentroidX(n);
+		return (double) _sumXX[n] / _count[n] - cx * cx;
+	}
+
+	public double getMomentYY(int n) {
+		final double cy = getCentroidY(n);
+		return (double) _sumYY[n] / _count[n] - cy * cy;
+	}
+
+	public double getMomentXY(int n) {
+		return (double) _sumXY[n] / _count[n] - getCentroidX(n)
+				* getCentroidY(n);
+	}
+
+	// the shape descriptor VisionUtils.shapeMoments computes from a mask of
+	// the pixels of segment n spanning its extent (in long arithmetic, so
+	// it does not overflow for segments of many thousand pixels)
+	public double[] shapeMoments(int n) {
+		final long nWidth = _maxX[n] - _minX[n] + 1;
+		final long nHeight = _maxY[n] - _minY[n] + 1;
+		final long nArea = _count[n];
+		final long cx = _minX[n] + nWidth / 2;
+		final long cy = _minY[n] + nHeight / 2;
+		final long xMoment = _sumX[n] - nArea * cx;
+		final long yMoment = _sumY[n] - nArea * cy;
+		final long xyMoment = _sumXY[n] - cx * _sumY[n] - cy * _sumX[n]
+				+ nArea * cx * cy;
+
+		double[] moments = new double[5];
+
+		moments[0] = (double) nWidth / (double) (nHeight + nWidth);
+		moments[1] = (double) nArea / (double) (nHeight * nWidth);
+		moments[2] = (double) xMoment / (double) (nArea * nWidth / 2);
+		moments[3] = (double) yMoment / (double) (nArea * nHeight / 2);
+		moments[4] = (double) xyMoment
+				/ (double) (nArea * nWidth / 2 * nHeight / 2);
+
+		return moments;
+	}
+
+	// add pixels x0 to x1 (exclusive) of row y to segment n of colour c
+	public void addRun(int n, short c, int x0, int x1, int y) {
+		final int i = y * _nWidth + x0;
+		final long len = x1 - x0;
+		final long sumX = (x0 + x1 - 1) * len / 2;
+		if (_count[n] == 0) {
+			_first[n] = i;
+			_colour[n] = c;
+			_minX[n] = x0;
+			_maxX[n] = x1 - 1;
+			_minY[n] = y;
+			_maxY[n] = y;
+		} else {
+			_first[n] = Math.min(_first[n], i);
+			_minX[n] = Math.min(_minX[n], x0);
+			_maxX[n] = Math.max(_maxX[n], x1 - 1);
+			_minY[n] = Math.min(_minY[n], y);
+			_maxY[n] = Math.max(_maxY[n], y);
+		}
+		_count[n] += len;
+		_sumX[n] += sumX;
+		_sumY[n] += len * y;
+		_sumXX[n] += sumOfSquares(x1 - 1) - sumOfSquares(x0 - 1);
+		_sumYY[n] += len * y * y;
+		_sumXY[n] += sumX * y;
+	}
+
+	// add the statistics of segment m of other to segment n
+	public void add(int n, SegmentStatistics other, int m) {
+		if (other._count[m] == 0)
+			return;
+		if (_count[n] == 0) {
+			set(n, other, m);
+			return;
+		}
+		_count[n] += other._count[m];
+		_first[n] = Math.min(_first[n], other._first[m]);
+		_minX[n] = Math.min(_minX[n], other._minX[m]);
+		_maxX[n] = Math.max(_maxX[n], other._maxX[m]);
+		_minY[n] = Math.min(_minY[n], other._minY[m]);
+		_maxY[n] = Math.max(_maxY[n], other._maxY[m]);
+		_sumX[n] += other._sumX[m];
+		_sumY[n] += other._sumY[m];
+		_sumXX[n] += other._sumXX[m];
+		_sumYY[n] += other._sumYY[m];
+		_sumXY[n] += other._sumXY[m];
+	}
+
+	// replace segment n by segment m of other
+	public void set(int n, SegmentStatistics other, int m) {
+		_count[n] = other._count[m];
+		_first[n] = other._first[m];
+		_colour[n] = other._colour[m];
+		_minX[n] = other._minX[m];
+		_maxX[n] = other._maxX[m];
+		_minY[n] = other._minY[m];
+		_maxY[n] = other._maxY[m];
+		_sumX[n] = other._sumX[m];
+		_sumY[n] = other._sumY[m];
+		_sumXX[n] = other._sumXX[m];
+		_sumYY[n] = other._sumYY[m];
+		_sumXY[n] = other._sumXY[m];
+	}
+
+	// replace segments n to n + length - 1 by segments m to m + length - 1
+	// of other
+	public void copy(int n, SegmentStatistics other, int m, int length) {
+		System.arraycopy(other._count, m, _count, n, length);
+		System.arraycopy(other._first, m, _first, n, length);
+		System.arraycopy(other._colour, m, _colour, n, length);
+		System.arraycopy(other._minX, m, _minX, n, length);
+		System.arraycopy(other._maxX, m, _maxX, n, length);
+		System.arraycopy(other._minY, m, _minY, n, length);
+		System.arraycopy(other._maxY, m, _maxY, n, length);
+		System.arraycopy(other._sumX, m, _sumX, n, length);
+		System.arraycopy(other._sumY, m, _sumY, n, length);
+		System.arraycopy(other._sumXX, m, _sumXX, n, length);
+		System.arraycopy(other._sumYY, m, _sumYY, n, length);
+		System.arraycopy(other._sumXY, m, _sumXY, n, length);
+	}
+
+	// set the number of segments without clearing them, for a caller that
+	// replaces every one of them
+	void setSize(int nSegments) {
+		if (_count.length < nSegments)
+			allocate(Math.max(nSegments, 2 * _count.length));
+		_nSegments = nSegments;
+	}
+
+	// append a segment without pixels, returning its index
+	public int addSegment() {
+		if (_nSegments == _count.length)
+			allocate(2 * _nSegments);
+		final int n = _nSegments++;
+		_count[n] = 0;
+		_sumX[n] = _sumY[n] = 0;
+		_sumXX[n] = _sumYY[n] = _sumXY[n] = 0;
+		return n;
+	}
+
+	// remove pixel (x, y) from the count and moments of segment n; its
+	// first pixel and extent are left for the caller to correct
+	void removePixel(int n, int x, int y) {
+		_count[n]--;
+		_sumX[n] -= x;
+		_sumY[n] -= y;
+		_sumXX[n] -= (long) x * x;
+		_sumYY[n] -= (long) y * y;
+		_sumXY[n] -= (long) x * y;
+	}
+
+	// add the count and moments (but not the extent) of segment m of other
+	// to segment n
+	void addMoments(int n, SegmentStatistics other, int m) {
+		_count[n] += other._count[m];
+		_sumX[n] += other._sumX[m];
+		_sumY[n] += other._sumY[m];
+		_sumXX[n] += other._sumXX[m];
+		_sumYY[n] += other._sumYY[m];
+		_sumXY[n] += other._sumXY[m];
+	}
+
+	// grow the first pixel and extent of segment n
+	void extend(int n, int first, int minX, int maxX, int minY, int maxY) {
+		_first[n] = Math.min(_first[n], first);
+		_minX[n] = Math.min(_minX[n], minX);
+		_maxX[n] = Math.max(_maxX[n], maxX);
+		_minY[n] = Math.min(_minY[n], minY);
+		_maxY[n] = Math.max(_maxY[n], maxY);
+	}
+
+	// 0^2 + 1^2 + ... + k^2
+	private static long sumOfSquares(long k) {
+		return (k < 0) ? 0 : k * (k + 1) * (2 * k + 1) / 6;
+	}
+
+	// (re)allocate the arrays for up to capacity segments
+	private void allocate(int capacity) {
+		_count = (_count == null) ? new int[capacity] : Arrays.copyOf(_count,
+				capacity);
+		_first = (_first == null) ? new int[capacity] : Arrays.copyOf(_first,
+				capacity);
+		_colour = (_colour == null) ? new short[capacity] : Arrays.copyOf(
+				_colour, capacity);
+		_minX = (_minX == null) ? new int[capacity] : Arrays.copyOf(_minX,
+				capacity);
+		_maxX = (_maxX == null) ? new int[capacity] : Arrays.copyOf(_maxX,
+				capacity);
+		_minY = (_minY == null) ? new int[capacity] : Arrays.copyOf(_minY,
+				capacity);
+		_maxY = (_maxY == null) ? new int[capacity] : Arrays.copyOf(_maxY,
+				capacity);
+		_sumX = (_sumX == null) ? new long[capacity] : Arrays.copyOf(_sumX,
+				capacity);
+		_sumY = (_sumY == null) ? new long[capacity] : Arrays.copyOf(_sumY,
+				capacity);
+		_sumXX = (_sumXX == null) ? new long[capacity] : Arrays.copyOf(
+				_sumXX, capacity);
+		_sumYY = (_sumYY == null) ? new long[capacity] : Arrays.copyOf(
+				_sumYY, capacity);
+		_sumXY = (_sumXY == null) ? new long[capacity] : Arrays.copyOf(
+				_sumXY, capacity);
+	}
+}
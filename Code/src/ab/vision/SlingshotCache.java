@@ -0,0 +1,142 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/* SlingshotCache --------------------------------------------------------- */
+
+// last slingshot found, with a signature of the screenshot around it: the
+// quantized colours of every STEP-th pixel of every STEP-th row of the
+// slingshot's bounding box grown by MARGIN pixels, except for the pocket
+// the bird to shoot sits in (see pocket). a screenshot with the same
+// signature shows the slingshot in the same place (the view was not
+// scrolled or zoomed), so it does not need to be found again, whatever the
+// bird in the sling is doing. any change within the signature falls back
+// to full detection
+public class SlingshotCache {
+
+	// pixels around the slingshot included in the signature
+	public static final int MARGIN = 8;
+
+	// spacing of the pixels in the signature
+	public static final int STEP = 2;
+
+	// centre of the pocket, in slingshot widths from its top left corner
+	// (the reference point of the trajectory planner), and its half size
+	private static final double POCKET_X = 0.5;
+	private static final double POCKET_Y = 0.65;
+	private static final double POCKET_SIZE = 1.0;
+
+	private Rectangle _slingshot; // last slingshot found (or null)
+	private Rectangle _area; // part of the scene the signature covers
+	private Rectangle _pocket; // part of _area left out of the signature
+	private short _signature[]; // quantized colours within _area
+	private int _nHits; // screenshots verified
+	private int _nMisses; // screenshots detected again
+
+	// slingshot in a screenshot, taken from the cache if the screenshot
+	// matches the signature and found (and cached) again otherwise
+	public Rectangle findSlingshot(BufferedImage screenshot) {
+		if (verify(screenshot)) {
+			_nHits++;
+			return new Rectangle(_slingshot);
+		}
+		_nMisses++;
+		remember(new Vision(screenshot).findSlingshot(), screenshot);
+		return getSlingshot();
+	}
+
+	// cache a slingshot found in a screenshot (by a Vision object the caller
+	// already has)
+	public void remember(Rectangle slingshot, BufferedImage screenshot) {
+		if (slingshot == null) {
+			clear();
+			return;
+		}
+		_slingshot = new Rectangle(slingshot);
+		_area = VisionUtils.cropBoundingBox(VisionUtils.dialateRectangle(
+				slingshot, MARGIN, MARGIN), screenshot.getWidth(), screenshot
+				.getHeight());
+		_pocket = pocket(slingshot);
+		_signature = signature(screenshot, _area, _pocket);
+	}
+
+	// check if a screenshot shows the cached slingshot in the same place
+	public boolean verify(BufferedImage screenshot) {
+		if ((_slingshot == null)
+				|| (_area.x + _area.width > screenshot.getWidth())
+				|| (_area.y + _area.height > screenshot.getHeight()))
+			return false;
+
+		final PixelReader pixels = new PixelReader(screenshot);
+		int i = 0;
+		for (int y = _area.y; y < _area.y + _area.height; y += STEP) {
+			for (int x = _area.x; x < _area.x + _area.width; x += STEP) {
+				if (_pocket.contains(x, y))
+					continue;
+				if (Vision.quantize(pixels.getRGB(x, y)) != _signature[i++])
+					return false;
+			}
+		}
+		return true;
+	}
+
+	// part of the scene around a slingshot the bird to shoot is drawn in,
+	// moving while it waits or changing when the next bird is loaded
+	public static Rectangle pocket(Rectangle slingshot) {
+		final int size = (int) Math.ceil(POCKET_SIZE * slingshot.width);
+		final int x = (int) (slingshot.x + POCKET_X * slingshot.width);
+		final int y = (int) (slingshot.y + POCKET_Y * slingshot.width);
+		return new Rectangle(x - size, y - size, 2 * size + 1, 2 * size + 1);
+	}
+
+	// cached slingshot (or null)
+	public Rectangle getSlingshot() {
+		return (_slingshot == null) ? null : new Rectangle(_slingshot);
+	}
+
+	public void clear() {
+		_slingshot = null;
+		_area = null;
+		_pocket = null;
+		_signature = null;
+	}
+
+	// number of screenshots the cache answered
+	public int getHits() {
+		return _nHits;
+	}
+
+	// number of screenshots the slingshot had to be found again in
+	public int getMisses() {
+		return _nMisses;
+	}
+
+	// quantized colours of every STEP-th pixel within area but outside
+	// pocket
+	private static short[] signature(BufferedImage screenshot,
+			Rectangle area, Rectangle pocket) {
+		final PixelReader pixels = new PixelReader(screenshot);
+		short[] signature = new short[((area.width + STEP - 1) / STEP)
+				* ((area.height + STEP - 1) / STEP)];
+		int i = 0;
+		for (int y = area.y; y < area.y + area.height; y += STEP) {
+			for (int x = area.x; x < area.x + area.width; x += STEP) {
+				if (!pocket.contains(x, y))
+					signature[i++] = Vision.quantize(pixels.getRGB(x, y));
+			}
+		}
+		return Arrays.copyOf(signature, i);
+	}
+}
@@ -0,0 +1,64 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+
+/* SummedAreaTable -------------------------------------------------------- */
+
+// integral image counting the pixels of one quantized colour: entry (x, y)
+// holds the number of pixels of the colour above and to the left of pixel
+// (x, y), so the count within any rectangle takes four lookups
+public class SummedAreaTable {
+
+	private final int _nWidth; // width of the scene
+	private final int _nHeight; // height of the scene
+	private final int _sums[]; // (width + 1) by (height + 1), row-major
+
+	public SummedAreaTable(int width, int height) {
+		_nWidth = width;
+		_nHeight = height;
+		_sums = new int[(width + 1) * (height + 1)];
+	}
+
+	// count the pixels of a colour in a row-major quantized scene of the
+	// table's size, replacing the previous counts
+	public SummedAreaTable compute(short[] scene, int colour) {
+		final int stride = _nWidth + 1;
+		for (int y = 0; y < _nHeight; y++) {
+			final int i0 = y * _nWidth;
+			final int above = y * stride + 1;
+			final int row = above + stride;
+			int n = 0;
+			for (int x = 0; x < _nWidth; x++) {
+				if (scene[i0 + x] == colour)
+					n++;
+				_sums[row + x] = _sums[above + x] + n;
+			}
+		}
+		return this;
+	}
+
+	// number of pixels of the colour within a rectangle (cropped to the
+	// scene)
+	public int count(Rectangle r) {
+		final int x0 = Math.max(0, r.x);
+		final int x1 = Math.min(_nWidth, r.x + r.width);
+		final int y0 = Math.max(0, r.y);
+		final int y1 = Math.min(_nHeight, r.y + r.height);
+		if ((x0 >= x1) || (y0 >= y1))
+			return 0;
+
+		final int stride = _nWidth + 1;
+		return _sums[y1 * stride + x1] - _sums[y0 * stride + x1]
+				- _sums[y1 * stride + x0] + _sums[y0 * stride + x0];
+	}
+}
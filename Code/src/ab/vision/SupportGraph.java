@@ -0,0 +1,471 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+
+/* SupportGraph ----------------------------------------------------------- */
+
+// which objects rest on which. nodes 0 to getBlockCount() - 1 are the
+// blocks, the pigs follow them and the last node is the ground, which
+// stands for everything the blocks may rest on that is not detected
+// (terrain, hills and the ground itself). an object rests on another if
+// they overlap horizontally and the bottom of its bounding box is within
+// a tolerance of the top of the other's; objects resting on nothing rest
+// on the ground. contacts are found by sweeping a line across the objects
+// in order of x, with the tops and bottoms of the objects the line crosses
+// held in interval trees over y, and stored in compressed arrays (the
+// nodes resting on node k are getResting(k, 0) to
+// getResting(k, getRestingCount(k) - 1)). object k holds up object j if
+// every chain of supports from j down to the ground passes through k (k
+// dominates j), which is answered from a numbering of the dominator tree
+public class SupportGraph {
+
+	// default distance between a bottom and a top still in contact
+	public static final int TOLERANCE = 3;
+
+	private final int _nBlocks; // number of blocks
+	private final int _nPigs; // number of pigs
+	private final int _nGround; // node of the ground
+	private final Rectangle _bounds[]; // bounding box of each object
+	private final int _supportStart[]; // first support of each node
+	private final int _supports[]; // nodes each node rests on
+	private final int _restingStart[]; // first node resting on each node
+	private final int _resting[]; // nodes resting on each node
+	private final int _pre[]; // dominator tree preorder number of each node
+	private final int _post[]; // one after the last number in its subtree
+	private final int _pigPre[]; // preorder numbers of the pigs, ascending
+	private final int _pigOrder[]; // pigs in the same order
+
+	// build the graph of blocks and pigs with the default tolerance
+	public SupportGraph(List<Rectangle> blocks, List<Rectangle> pigs) {
+		this(blocks, pigs, TOLERANCE);
+	}
+
+	public SupportGraph(List<Rectangle> blocks, List<Rectangle> pigs,
+			int tolerance) {
+		_nBlocks = blocks.size();
+		_nPigs = pigs.size();
+		_nGround = _nBlocks + _nPigs;
+		final int nObjects = _nGround;
+		_bounds = new Rectangle[nObjects];
+		for (int i = 0; i < nObjects; i++) {
+			_bounds[i] = new Rectangle((i < _nBlocks) ? blocks.get(i) : pigs
+					.get(i - _nBlocks));
+		}
+
+		// contacts (upper[e] rests on lower[e])
+		IntList upper = new IntList();
+		IntList lower = new IntList();
+		findContacts(tolerance, upper, lower);
+
+		// objects resting on nothing rest on the ground
+		int[] nSupports = new int[nObjects + 1];
+		for (int e = 0; e < upper.size(); e++) {
+			nSupports[upper.get(e)]++;
+		}
+		for (int i = 0; i < nObjects; i++) {
+			if (nSupports[i] == 0) {
+				upper.add(i);
+				lower.add(_nGround);
+			}
+		}
+
+		_supportStart = new int[nObjects + 2];
+		_supports = new int[upper.size()];
+		compress(upper, lower, _supportStart, _supports);
+		_restingStart = new int[nObjects + 2];
+		_resting = new int[upper.size()];
+		compress(lower, upper, _restingStart, _resting);
+
+		_pre = new int[nObjects + 1];
+		_post = new int[nObjects + 1];
+		numberDominators();
+
+		// pigs in preorder, so that the pigs k holds up are a range
+		int[] keys = new int[_nPigs];
+		for (int p = 0; p < _nPigs; p++) {
+			keys[p] = _pre[_nBlocks + p];
+		}
+		_pigOrder = sortedBy(keys);
+		_pigPre = new int[_nPigs];
+		for (int p = 0; p < _nPigs; p++) {
+			_pigOrder[p] += _nBlocks;
+			_pigPre[p] = _pre[_pigOrder[p]];
+		}
+	}
+
+	public int getBlockCount() {
+		return _nBlocks;
+	}
+
+	public int getPigCount() {
+		return _nPigs;
+	}
+
+	// number of nodes (blocks, pigs and the ground)
+	public int getNodeCount() {
+		return _nGround + 1;
+	}
+
+	// node of the ground
+	public int getGround() {
+		return _nGround;
+	}
+
+	// node of pig p (its index in the list of pigs)
+	public int getPig(int p) {
+		return _nBlocks + p;
+	}
+
+	public boolean isPig(int node) {
+		return (node >= _nBlocks) && (node < _nGround);
+	}
+
+	// bounding box of an object (null for the ground)
+	public Rectangle getBounds(int node) {
+		return (node == _nGround) ? null : new Rectangle(_bounds[node]);
+	}
+
+	// number of nodes a node rests on
+	public int getSupportCount(int node) {
+		return _supportStart[node + 1] - _supportStart[node];
+	}
+
+	public int getSupport(int node, int i) {
+		return _supports[_supportStart[node] + i];
+	}
+
+	// nodes a node rests on
+	public int[] getSupports(int node) {
+		return Arrays.copyOfRange(_supports, _supportStart[node],
+				_supportStart[node + 1]);
+	}
+
+	// number of nodes resting on a node
+	public int getRestingCount(int node) {
+		return _restingStart[node + 1] - _restingStart[node];
+	}
+
+	public int getResting(int node, int i) {
+		return _resting[_restingStart[node] + i];
+	}
+
+	// nodes resting on a node
+	public int[] getResting(int node) {
+		return Arrays.copyOfRange(_resting, _restingStart[node],
+				_restingStart[node + 1]);
+	}
+
+	// check if node loses all support when node k breaks
+	public boolean dependsOn(int node, int k) {
+		return (_pre[k] < _pre[node]) && (_post[node] <= _post[k]);
+	}
+
+	// pigs (as nodes) that lose all support when node k breaks
+	public int[] getPigsLosingSupport(int k) {
+		final int from = lowerBound(_pigPre, _pre[k] + 1);
+		final int to = lowerBound(_pigPre, _post[k]);
+		return Arrays.copyOfRange(_pigOrder, from, to);
+	}
+
+	// find every pair of objects in contact by a sweep over x. when an
+	// object enters the sweep line it is checked against the objects on the
+	// line whose tops are near its bottom and whose bottoms are near its
+	// top, so every pair overlapping horizontally is considered once
+	private void findContacts(int tolerance, IntList upper, IntList lower) {
+		final int n = _bounds.length;
+		if (n == 0)
+			return;
+		int minY = Integer.MAX_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for (Rectangle r : _bounds) {
+			minY = Math.min(minY, r.y);
+			maxY = Math.max(maxY, r.y + r.height);
+		}
+		final int offset = minY - tolerance;
+		final IntervalTree tops = new IntervalTree(maxY + tolerance - offset
+				+ 1);
+		final IntervalTree bottoms = new IntervalTree(maxY + tolerance
+				- offset + 1);
+
+		final int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = _bounds[i].x;
+		}
+		final int[] starts = sortedBy(keys);
+		for (int i = 0; i < n; i++) {
+			keys[i] = _bounds[i].x + _bounds[i].width;
+		}
+		final int[] ends = sortedBy(keys);
+
+		IntList found = new IntList();
+		int e = 0;
+		for (int s = 0; s < n; s++) {
+			final int i = starts[s];
+			final Rectangle r = _bounds[i];
+			// objects ending where this one starts do not overlap it
+			while ((e < n)
+					&& (_bounds[ends[e]].x + _bounds[ends[e]].width <= r.x)) {
+				final Rectangle q = _bounds[ends[e]];
+				if (q.width > 0) {
+					tops.remove(q.y - tolerance - offset, q.y + tolerance
+							- offset, ends[e]);
+					bottoms.remove(q.y + q.height - tolerance - offset, q.y
+							+ q.height + tolerance - offset, ends[e]);
+				}
+				e++;
+			}
+			if (r.width <= 0)
+				continue;
+
+			// objects whose tops are near the bottom of this one
+			found.clear();
+			tops.stab(r.y + r.height - offset, found);
+			for (int k = 0; k < found.size(); k++) {
+				if (isAbove(i, found.get(k))) {
+					upper.add(i);
+					lower.add(found.get(k));
+				}
+			}
+			// objects whose bottoms are near the top of this one
+			found.clear();
+			bottoms.stab(r.y - offset, found);
+			for (int k = 0; k < found.size(); k++) {
+				if (isAbove(found.get(k), i)) {
+					upper.add(found.get(k));
+					lower.add(i);
+				}
+			}
+
+			tops.insert(r.y - tolerance - offset, r.y + tolerance - offset, i);
+			bottoms.insert(r.y + r.height - tolerance - offset, r.y + r.height
+					+ tolerance - offset, i);
+		}
+	}
+
+	// check if the centre of object i is above the centre of object j (an
+	// object only rests on objects below it, so supports never form cycles)
+	private boolean isAbove(int i, int j) {
+		return 2 * _bounds[i].y + _bounds[i].height < 2 * _bounds[j].y
+				+ _bounds[j].height;
+	}
+
+	// compressed rows of edges from[e] to to[e]; start has a slot for every
+	// node and one after the last
+	private static void compress(IntList from, IntList to, int[] start,
+			int[] adjacent) {
+		for (int e = 0; e < from.size(); e++) {
+			start[from.get(e) + 1]++;
+		}
+		for (int v = 1; v < start.length; v++) {
+			start[v] += start[v - 1];
+		}
+		int[] next = Arrays.copyOf(start, start.length);
+		for (int e = 0; e < from.size(); e++) {
+			adjacent[next[from.get(e)]++] = to.get(e);
+		}
+	}
+
+	// number the dominator tree (rooted at the ground) in preorder. nodes
+	// are visited supports first (the ground, then by decreasing centre),
+	// and the immediate dominator of a node is the nearest common dominator
+	// of its supports
+	private void numberDominators() {
+		final int nNodes = _nGround + 1;
+		final int[] keys = new int[nNodes];
+		for (int v = 0; v < _nGround; v++) {
+			keys[v] = -(2 * _bounds[v].y + _bounds[v].height);
+		}
+		keys[_nGround] = Integer.MIN_VALUE;
+		final int[] order = sortedBy(keys);
+
+		final int[] idom = new int[nNodes];
+		final int[] depth = new int[nNodes];
+		idom[_nGround] = -1;
+		for (int o = 1; o < nNodes; o++) {
+			final int v = order[o];
+			int d = _supports[_supportStart[v]];
+			for (int i = _supportStart[v] + 1; i < _supportStart[v + 1]; i++) {
+				int u = _supports[i];
+				while (u != d) {
+					if (depth[u] >= depth[d]) {
+						u = idom[u];
+					} else {
+						d = idom[d];
+					}
+				}
+			}
+			idom[v] = d;
+			depth[v] = depth[d] + 1;
+		}
+
+		// children of each node in the dominator tree, then preorder
+		final int[] childStart = new int[nNodes + 1];
+		final int[] children = new int[nNodes - 1];
+		for (int v = 0; v < nNodes; v++) {
+			if (idom[v] >= 0)
+				childStart[idom[v] + 1]++;
+		}
+		for (int v = 1; v <= nNodes; v++) {
+			childStart[v] += childStart[v - 1];
+		}
+		final int[] next = Arrays.copyOf(childStart, nNodes);
+		for (int v = 0; v < nNodes; v++) {
+			if (idom[v] >= 0)
+				children[next[idom[v]]++] = v;
+		}
+		final int[] stack = new int[nNodes];
+		final int[] child = new int[nNodes];
+		int top = 0;
+		int number = 0;
+		stack[0] = _nGround;
+		child[0] = childStart[_nGround];
+		_pre[_nGround] = number++;
+		while (top >= 0) {
+			final int v = stack[top];
+			if (child[top] < childStart[v + 1]) {
+				final int c = children[child[top]++];
+				_pre[c] = number++;
+				stack[++top] = c;
+				child[top] = childStart[c];
+			} else {
+				_post[v] = number;
+				top--;
+			}
+		}
+	}
+
+	// indices of keys in order of increasing key (and index, for equal keys)
+	private static int[] sortedBy(int[] keys) {
+		final long[] packed = new long[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			packed[i] = ((long) keys[i] << 32) | i;
+		}
+		Arrays.sort(packed);
+		int[] order = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			order[i] = (int) packed[i];
+		}
+		return order;
+	}
+
+	// first index of a sorted array holding a value of at least key
+	private static int lowerBound(int[] a, int key) {
+		int lo = 0;
+		int hi = a.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (a[mid] < key) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// growable list of ints
+	private static class IntList {
+		private int _values[] = new int[16];
+		private int _nSize;
+
+		void add(int value) {
+			if (_nSize == _values.length)
+				_values = Arrays.copyOf(_values, 2 * _nSize);
+			_values[_nSize++] = value;
+		}
+
+		int get(int i) {
+			return _values[i];
+		}
+
+		int size() {
+			return _nSize;
+		}
+
+		void clear() {
+			_nSize = 0;
+		}
+	}
+
+	// intervals of rows 0 to nRows - 1 holding ids, answering which of them
+	// contain a given row. a segment tree: an interval is held by the
+	// O(log nRows) nodes that make it up, and the intervals containing a
+	// row are the ones held on the path from its leaf to the root
+	private static class IntervalTree {
+		private final int _nLeaves;
+		private final int _ids[][];
+		private final int _counts[];
+
+		IntervalTree(int nRows) {
+			int n = 1;
+			while (n < nRows) {
+				n *= 2;
+			}
+			_nLeaves = n;
+			_ids = new int[2 * n][];
+			_counts = new int[2 * n];
+		}
+
+		// hold id in the interval lo to hi (inclusive)
+		void insert(int lo, int hi, int id) {
+			for (int l = lo + _nLeaves, r = hi + _nLeaves + 1; l < r; l >>= 1, r >>= 1) {
+				if ((l & 1) == 1)
+					add(l++, id);
+				if ((r & 1) == 1)
+					add(--r, id);
+			}
+		}
+
+		// stop holding id in the interval lo to hi it was inserted with
+		void remove(int lo, int hi, int id) {
+			for (int l = lo + _nLeaves, r = hi + _nLeaves + 1; l < r; l >>= 1, r >>= 1) {
+				if ((l & 1) == 1)
+					delete(l++, id);
+				if ((r & 1) == 1)
+					delete(--r, id);
+			}
+		}
+
+		// add the ids of the intervals containing row y to found
+		void stab(int y, IntList found) {
+			if ((y < 0) || (y >= _nLeaves))
+				return;
+			for (int node = y + _nLeaves; node > 0; node >>= 1) {
+				for (int k = 0; k < _counts[node]; k++) {
+					found.add(_ids[node][k]);
+				}
+			}
+		}
+
+		private void add(int node, int id) {
+			if (_ids[node] == null) {
+				_ids[node] = new int[4];
+			} else if (_counts[node] == _ids[node].length) {
+				_ids[node] = Arrays.copyOf(_ids[node], 2 * _counts[node]);
+			}
+			_ids[node][_counts[node]++] = id;
+		}
+
+		private void delete(int node, int id) {
+			final int[] ids = _ids[node];
+			for (int k = 0; k < _counts[node]; k++) {
+				if (ids[k] == id) {
+					ids[k] = ids[--_counts[node]];
+					return;
+				}
+			}
+		}
+	}
+}
@@ -24,7 +24,6 @@ import java.util.List;
 
 import javax.imageio.ImageIO;
 
-import Jama.Matrix;
 import ab.demo.other.ActionRobot;
 import ab.demo.util.StateUtil;
 import ab.server.Proxy;
@@ -66,9 +65,12 @@ public class TestVision implements Runnable {
 
 		// meta debugging information
 		int[][] meta = new int[nHeight][nWidth];
+		final PixelReader pixels = new PixelReader(screenshot);
+		final int[] row = new int[nWidth];
 		for (int y = 0; y < nHeight; y++) {
+			pixels.readRow(y, row);
 			for (int x = 0; x < nWidth; x++) {
-				final int colour = screenshot.getRGB(x, y);
+				final int colour = row[x];
 				meta[y][x] = ((colour & 0x00e00000) >> 15)
 						| ((colour & 0x0000e000) >> 10)
 						| ((colour & 0x000000e0) >> 5);
@@ -95,19 +97,20 @@ public class TestVision implements Runnable {
 		//System.out.println("In game score : " + game.getScoreInGame(screenshot));
 		// process image
 		Vision vision = new Vision(screenshot);
-		List<Rectangle> pigs = vision.findPigs();
-		List<Rectangle> redBirds = vision.findRedBirds();
-		List<Rectangle> blueBirds = vision.findBlueBirds();
-		List<Rectangle> yellowBirds = vision.findYellowBirds();
-		List<Rectangle> woodBlocks = vision.findWood();
-		List<Rectangle> stoneBlocks = vision.findStones();
-		List<Rectangle> iceBlocks = vision.findIce();
-		List<Rectangle> whiteBirds = vision.findWhiteBirds();
-		List<Rectangle> blackBirds = vision.findBlackBirds();
-		List<Rectangle> TNTs = vision.findTNTs();
-		List<Point> trajPoints = vision.findTrajPoints();
-
-		Rectangle sling = vision.findSlingshot();
+		SceneSnapshot scene = vision.detectAll();
+		List<Rectangle> pigs = scene.getPigs();
+		List<Rectangle> redBirds = scene.getRedBirds();
+		List<Rectangle> blueBirds = scene.getBlueBirds();
+		List<Rectangle> yellowBirds = scene.getYellowBirds();
+		List<Rectangle> woodBlocks = scene.getWood();
+		List<Rectangle> stoneBlocks = scene.getStones();
+		List<Rectangle> iceBlocks = scene.getIce();
+		List<Rectangle> whiteBirds = scene.getWhiteBirds();
+		List<Rectangle> blackBirds = scene.getBlackBirds();
+		List<Rectangle> TNTs = scene.getTNTs();
+		List<Point> trajPoints = scene.getTrajPoints();
+
+		Rectangle sling = scene.getSlingshot();
 
 
 		// draw objects
@@ -118,6 +121,8 @@ public class TestVision implements Runnable {
 		VisionUtils.drawBoundingBoxes(screenshot, yellowBirds, Color.YELLOW);
 		VisionUtils.drawBoundingBoxes(screenshot, woodBlocks, Color.WHITE,
 				Color.ORANGE);
+		VisionUtils.drawBoundingPolygons(screenshot, vision.findWoodPolygons(),
+				Color.ORANGE);
 		VisionUtils.drawBoundingBoxes(screenshot, stoneBlocks, Color.WHITE,
 				Color.GRAY);
 		VisionUtils.drawBoundingBoxes(screenshot, iceBlocks, Color.WHITE,
@@ -132,18 +137,18 @@ public class TestVision implements Runnable {
 			VisionUtils.drawBoundingBox(screenshot, sling, Color.ORANGE,
 					Color.BLACK);
 
-			// generate traj points using estimated parameters
-			Matrix W = vision.fitParabola(trajPoints);
+			// generate traj points using estimated parameters, fitted again
+			// to the points near the first fit
+			ParabolaFitter fitter = vision.fitTrajectory(trajPoints);
+			fitter.refit(trajPoints, 10, 5);
 			int p[][] = new int[2][100];
 			int startx = (int) sling.getCenterX();
 			for (int i = 0; i < 100; i++) {
 				p[0][i] = startx;
-				double tem = W.get(0, 0) * Math.pow(p[0][i], 2) + W.get(1, 0)
-						* p[0][i] + W.get(2, 0);
-				p[1][i] = (int) tem;
+				p[1][i] = (int) fitter.evaluate(p[0][i]);
 				startx += 10;
 			}
-			if (W.get(0, 0) > 0)
+			if (fitter.getA() > 0)
 				VisionUtils.drawtrajectory(screenshot, p, Color.RED);
 
 		}
@@ -11,16 +11,24 @@
 package ab.vision;
 
 import java.awt.Point;
+import java.awt.Polygon;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 import Jama.Matrix;
+import ab.planner.TrajectoryPlanner;
 
 /* Vision ----------------------------------------------------------------- */
 
@@ -28,224 +36,1041 @@ public class Vision {
 
 	private int _nHeight; // height of the scene
 	private int _nWidth; // width of the scene
-	private int _scene[][]; // quantized scene colours
+	private short _scene[]; // quantized scene colours (row-major)
 	private int _nSegments; // number of segments
-	private int _segments[][]; // connected components (0 to _nSegments)
-	private int _colours[]; // colour for each segment
+	private int _segments[]; // connected components (0 to _nSegments, row-major)
+	private short _colours[]; // colour for each segment
 	private Rectangle _boxes[]; // bounding box for each segment
+	private SegmentStatistics _stats; // pixel count, extent and moments
+	private SegmentStatistics _spareStats; // statistics reused by update
+	private int _colourStart[]; // start of each colour in _colourSegments
+	private int _colourSegments[]; // segment ids grouped by colour
+	private SegmentGrid _allBoxes; // spatial index over all bounding boxes
+	private SegmentRuns _runs; // run-length encoded segments (or null)
+	private int _work[]; // work buffer for connected components
+	private byte _rank[]; // union-find ranks for connected components
 	private int _regionThreshold = 10; // minimal pixels in a region
+	private int _noiseThreshold = 0; // segments with fewer pixels are noise
+	private int _nNoiseSegments; // noise segments merged into neighbours
+	private Labeling _labeling; // connected components algorithm
+	private ForkJoinPool _pool; // pool for striped preprocessing (or null)
+	private int _pixels[]; // colours of the previous frame (see update)
+	private int _region[]; // component of pixels being re-segmented
+	private int _regionPixels[]; // pixels being re-segmented (see update)
+	private boolean _dirty[]; // tiles changed since the previous frame
+	private boolean _incremental; // last frame processed by update
+	private RegionOfInterest _roi; // part of the scene processed (or null)
+	private boolean _included[]; // pixels in the region of interest
+	private int _scanStart; // first pixel in the region of interest
+	private int _scanEnd; // one after the last pixel in the region
+	private FloodFill _fill; // flood fill engine shared by the detectors
+	private FloodFill _parallelFills[]; // engines of concurrent detectors
+	private ContourTracer _tracer; // contour tracing engine (or null)
+	private SegmentStatistics _stripeStats[]; // statistics of each stripe
+	private SummedAreaTable _colourCounts[]; // integral images by colour
+	private boolean _colourCounted[]; // integral images of this frame
+	private int _colourScanned[]; // pixels counted without them
+
+	// memoized detector results for the current screenshot
+	private Rectangle _slingshot;
+	private boolean _slingshotDetected;
+	private List<Rectangle> _pigs;
+	private List<Rectangle> _redBirds;
+	private List<Rectangle> _blueBirds;
+	private List<Rectangle> _yellowBirds;
+	private List<Rectangle> _whiteBirds;
+	private List<Rectangle> _blackBirds;
+	private List<Rectangle> _tnts;
+	private List<Rectangle> _stones;
+	private List<Rectangle> _ice;
+	private List<Rectangle> _wood;
+	private List<Polygon> _woodPolygons;
+	private List<Point> _trajPoints;
+
+	// width and height of the tiles compared by update
+	private static final int TILE_SIZE = 16;
+
+	// colours the detector regions are grown over (see ColourClass for
+	// overriding them)
+	private static final ColourClass SLINGSHOT_COLOURS = ColourClass
+			.configurable("slingshot", 345, 418, 273, 281, 209, 346, 354, 282,
+					351);
+	private static final ColourClass STONE_COLOURS = ColourClass
+			.configurable("stone", 365);
+	private static final ColourClass ICE_COLOURS = ColourClass.configurable(
+			"ice", 311, 247, 183);
+	private static final ColourClass WOOD_COLOURS = ColourClass.configurable(
+			"wood", 481, 408, 417);
+	private static final ColourClass TRAJECTORY_COLOURS = ColourClass
+			.configurable("trajectory", 365, 366, 438);
+
+	// colours of the segments the segment based detectors walk (see
+	// segmentsOf), starting from the seed
+	private static final ColourClass PIG_COLOURS = ColourClass.configurable(
+			"pig", 376);
+	private static final ColourClass RED_BIRD_COLOURS = ColourClass
+			.configurable("redbird", 385);
+	private static final ColourClass BLUE_BIRD_COLOURS = ColourClass
+			.configurable("bluebird", 238, 165, 280, 344, 488, 416);
+	private static final ColourClass YELLOW_BIRD_COLOURS = ColourClass
+			.configurable("yellowbird", 497);
+	private static final ColourClass WHITE_BIRD_COLOURS = ColourClass
+			.configurable("whitebird", 490, 508, 510);
+	private static final ColourClass BLACK_BIRD_COLOURS = ColourClass
+			.configurable("blackbird", 488, 146, 64, 0);
+	private static final ColourClass TNT_COLOURS = ColourClass.configurable(
+			"tnt", 410, 418);
+
+	// colours of the segments found next to pigs and birds (see boxGrid)
+	private static final ColourClass PIG_SECONDARY_COLOURS = ColourClass
+			.configurable("pig.secondary", 250);
+	private static final ColourClass RED_BIRD_SECONDARY_COLOURS = ColourClass
+			.configurable("redbird.secondary", 488, 501);
+	private static final ColourClass BLUE_BIRD_SECONDARY_COLOURS = ColourClass
+			.configurable("bluebird.secondary", 488);
+
+	// colours the detectors start from or grow over, the ones the coarse
+	// level of the pyramid mode looks for
+	private static final ColourClass OBJECT_COLOURS = ColourClass.union(
+			"objects", SLINGSHOT_COLOURS, PIG_COLOURS, RED_BIRD_COLOURS,
+			BLUE_BIRD_COLOURS, YELLOW_BIRD_COLOURS, WHITE_BIRD_COLOURS,
+			BLACK_BIRD_COLOURS, TNT_COLOURS, TRAJECTORY_COLOURS,
+			STONE_COLOURS, ICE_COLOURS, WOOD_COLOURS);
+
+	// colours of the segments the detectors walk (see segmentsOf), which are
+	// neither merged into nor grown by noise segments
+	private static final ColourClass SEGMENT_COLOURS = ColourClass.union(
+			"segments", PIG_COLOURS, PIG_SECONDARY_COLOURS, RED_BIRD_COLOURS,
+			RED_BIRD_SECONDARY_COLOURS, BLUE_BIRD_COLOURS,
+			BLUE_BIRD_SECONDARY_COLOURS, YELLOW_BIRD_COLOURS,
+			WHITE_BIRD_COLOURS, BLACK_BIRD_COLOURS, TNT_COLOURS);
+
+	// full resolution pixels kept around the objects found on the coarse
+	// level of the pyramid mode
+	public static final int PYRAMID_MARGIN = 8;
+
+	// half height of the band around a predicted trajectory searched for
+	// trajectory points, next to the slingshot; it grows by a pixel every
+	// TRAJECTORY_SPREAD pixels further on, as errors in the predicted
+	// launch angle and velocity add up along the trajectory
+	public static final int TRAJECTORY_BAND = 20;
+	public static final int TRAJECTORY_SPREAD = 8;
+
+	// connected components algorithms (both give identical segments)
+	public enum Labeling {
+		BREADTH_FIRST, UNION_FIND
+	}
 
 	// create a vision object for processing a given screenshot
 	public Vision(BufferedImage screenshot) {
+		this(screenshot, Labeling.UNION_FIND);
+	}
+
+	// create a vision object using the given connected components algorithm
+	public Vision(BufferedImage screenshot, Labeling labeling) {
+		_labeling = labeling;
+		processScreenShot(screenshot);
+	}
+
+	// create a vision object that quantizes and labels the screenshot in
+	// horizontal stripes, concurrently in the given pool (the segments are
+	// identical to the ones of the sequential union-find)
+	public Vision(BufferedImage screenshot, ForkJoinPool pool) {
+		_labeling = Labeling.UNION_FIND;
+		_pool = pool;
+		processScreenShot(screenshot);
+	}
+
+	// create a vision object that only processes the given region of
+	// interest; pixels outside it are not part of any segment
+	public Vision(BufferedImage screenshot, RegionOfInterest roi) {
+		_labeling = Labeling.UNION_FIND;
+		_roi = roi;
+		processScreenShot(screenshot);
+	}
+
+	// create a vision object for the first of a sequence of frames of the
+	// same scene, keeping the colours update compares the next frame
+	// against (a vision object created otherwise processes its first update
+	// in full)
+	public static Vision incremental(BufferedImage screenshot) {
+		return new Vision(screenshot, new int[screenshot.getWidth()
+				* screenshot.getHeight()]);
+	}
+
+	private Vision(BufferedImage screenshot, int[] pixels) {
+		_labeling = Labeling.UNION_FIND;
+		_pixels = pixels;
 		processScreenShot(screenshot);
 	}
 
+	// create a vision object in pyramid mode: candidate regions for the
+	// objects are found on a coarse level downsampled by factor (2 or 4, say)
+	// and only those regions are processed at full resolution. objects the
+	// coarse level misses are not found (see VisionBenchmark.benchmarkPyramid)
+	public static Vision pyramid(BufferedImage screenshot, int factor) {
+		return new Vision(screenshot, pyramidRegionOfInterest(screenshot,
+				factor));
+	}
+
+	// region of interest the pyramid mode processes at full resolution
+	public static RegionOfInterest pyramidRegionOfInterest(
+			BufferedImage screenshot, int factor) {
+		return new ImagePyramid(screenshot, factor).regionOfInterest(
+				OBJECT_COLOURS, (PYRAMID_MARGIN + factor - 1) / factor);
+	}
+
+	// region of interest for the current level derived from the slingshot,
+	// which stands on the ground (see RegionOfInterest.aboveGround)
+	public RegionOfInterest defaultRegionOfInterest() {
+		return RegionOfInterest.aboveGround(findSlingshot(), -1, _nWidth,
+				_nHeight);
+	}
+
+	// process a new screenshot reusing the buffers of the previous one, so
+	// that a long-running agent does not reallocate them for every frame
+	public void reset(BufferedImage screenshot) {
+		processScreenShot(screenshot);
+	}
+
+	// process the next frame of the same scene, re-segmenting only around
+	// the tiles whose quantized colours changed since the previous frame.
+	// the segments are identical to the ones reset would give, and results
+	// are kept when nothing changed. the first call processes the full frame
+	public void update(BufferedImage screenshot) {
+		if ((_pixels == null) || (screenshot.getWidth() != _nWidth)
+				|| (screenshot.getHeight() != _nHeight)) {
+			_pixels = new int[screenshot.getWidth() * screenshot.getHeight()];
+			processScreenShot(screenshot);
+			return;
+		}
+		_incremental = true;
+
+		// quantize the pixels that changed and mark their tiles dirty
+		final int nTilesX = (_nWidth + TILE_SIZE - 1) / TILE_SIZE;
+		final int nTilesY = (_nHeight + TILE_SIZE - 1) / TILE_SIZE;
+		if ((_dirty == null) || (_dirty.length != nTilesX * nTilesY)) {
+			_dirty = new boolean[nTilesX * nTilesY];
+		} else {
+			Arrays.fill(_dirty, false);
+		}
+		final PixelReader pixels = new PixelReader(screenshot);
+		final int[] row = new int[_nWidth];
+		int nDirty = 0;
+		for (int y = 0; y < _nHeight; y++) {
+			final int i0 = y * _nWidth;
+			if ((i0 + _nWidth <= _scanStart) || (i0 >= _scanEnd))
+				continue;
+			pixels.readRow(y, row);
+			for (int x = 0; x < _nWidth; x++) {
+				final int i = i0 + x;
+				if ((row[x] == _pixels[i])
+						|| ((_included != null) && !_included[i]))
+					continue;
+				_pixels[i] = row[x];
+				final short c = quantize(row[x]);
+				if (c == _scene[i])
+					continue;
+				_scene[i] = c;
+				final int t = (y / TILE_SIZE) * nTilesX + x / TILE_SIZE;
+				if (!_dirty[t]) {
+					_dirty[t] = true;
+					nDirty++;
+				}
+			}
+		}
+		if (nDirty == 0)
+			return;
+
+		// merged noise segments are not of a single colour, which
+		// re-segmenting relies on
+		if ((nDirty * TILE_SIZE * TILE_SIZE > _nWidth * _nHeight / 4)
+				|| (_noiseThreshold > 0) || !resegment(nTilesX)) {
+			// too much changed, so label the whole scene again
+			labelScene();
+			findSegmentProperties();
+		}
+		forgetResults();
+		indexColours();
+	}
+
+	// the part of the scene that changed in the last call to update, as
+	// runs of tiles in a row (empty if nothing changed, and the whole
+	// scene if the screenshot was processed from scratch)
+	public List<Rectangle> getChangedRegion() {
+		List<Rectangle> region = new ArrayList<Rectangle>();
+		if (!_incremental) {
+			region.add(new Rectangle(0, 0, _nWidth, _nHeight));
+			return region;
+		}
+		final int nTilesX = (_nWidth + TILE_SIZE - 1) / TILE_SIZE;
+		for (int t = 0; t < _dirty.length; t++) {
+			if (!_dirty[t])
+				continue;
+			final int t0 = t;
+			while ((t + 1 < _dirty.length) && _dirty[t + 1]
+					&& ((t + 1) % nTilesX != 0)) {
+				t++;
+			}
+			region.add(VisionUtils.cropBoundingBox(new Rectangle((t0 % nTilesX)
+					* TILE_SIZE, (t0 / nTilesX) * TILE_SIZE, (t - t0 + 1)
+					* TILE_SIZE, TILE_SIZE), _nWidth, _nHeight));
+		}
+		return region;
+	}
+
+	// re-segment the dirty tiles and the tiles around them. a segment of
+	// the previous frame reaching into this region stays in one piece if
+	// its unchanged pixels in the region remain connected within the region
+	// (no pixel it lost is on the border of the region), so only the region
+	// is labeled again and such segments are joined to the component
+	// holding their unchanged pixels. segments that may have been split are
+	// added to the region as a whole. segments are renumbered in order of
+	// their first pixel, as the full labeling does. returns false (leaving
+	// the segments untouched) if the region grows too large
+	private boolean resegment(int nTilesX) {
+		final int nPixels = _nWidth * _nHeight;
+		if ((_region == null) || (_region.length != nPixels)) {
+			_region = new int[nPixels];
+			_regionPixels = new int[nPixels];
+			Arrays.fill(_region, -1);
+		}
+
+		// the region is made of the dirty tiles and the tiles around them;
+		// its pixels are -2 until labeled, the others stay -1
+		final int nTilesY = _dirty.length / nTilesX;
+		int nRegion = 0;
+		for (int ty = 0; ty < nTilesY; ty++) {
+			for (int tx = 0; tx < nTilesX; tx++) {
+				if (!isNearDirtyTile(tx, ty, nTilesX, nTilesY))
+					continue;
+				final int x0 = tx * TILE_SIZE;
+				final int x1 = Math.min(_nWidth, x0 + TILE_SIZE);
+				final int y1 = Math.min(_nHeight, (ty + 1) * TILE_SIZE);
+				for (int y = ty * TILE_SIZE; y < y1; y++) {
+					for (int i = y * _nWidth + x0; i < y * _nWidth + x1; i++) {
+						_region[i] = -2;
+						_regionPixels[nRegion++] = i;
+					}
+				}
+			}
+		}
+
+		// component of the unchanged pixels of each segment of the previous
+		// frame (or one of the states below) and the extent of its pixels
+		// outside the region
+		final int UNTOUCHED = -1, TOUCHED = -2, SPLIT = -3;
+		int[] anchor = new int[_nSegments];
+		int[] touched = new int[64];
+		int nTouched;
+		int[] outside = new int[64 * 5];
+		SegmentStatistics comps;
+		while (true) {
+			comps = labelRegion(nRegion);
+
+			Arrays.fill(anchor, UNTOUCHED);
+			nTouched = 0;
+			for (int k = 0; k < nRegion; k++) {
+				final int p = _regionPixels[k];
+				final int n = _segments[p];
+				if (n < 0)
+					continue;
+				if (anchor[n] == UNTOUCHED) {
+					if (nTouched == touched.length)
+						touched = Arrays.copyOf(touched, 2 * nTouched);
+					touched[nTouched++] = n;
+					anchor[n] = TOUCHED;
+				}
+				if (_scene[p] != _colours[n])
+					continue;
+				final int c = _region[p];
+				if (anchor[n] == TOUCHED) {
+					anchor[n] = c;
+				} else if ((anchor[n] >= 0) && (anchor[n] != c)) {
+					anchor[n] = SPLIT;
+				}
+			}
+
+			// add the segments that may have been split to the region
+			if (outside.length < 5 * nTouched)
+				outside = new int[5 * touched.length];
+			final int nBefore = nRegion;
+			for (int k = 0; k < nTouched; k++) {
+				final int n = touched[k];
+				if (!findOutsideExtent(n, outside, 5 * k) || (anchor[n] >= 0))
+					continue;
+				final Rectangle r = _boxes[n];
+				for (int y = r.y; y <= Math.min(_nHeight - 1, r.y + r.height); y++) {
+					for (int x = r.x; x <= Math.min(_nWidth - 1, r.x + r.width); x++) {
+						final int i = y * _nWidth + x;
+						if ((_segments[i] == n) && (_region[i] == -1)) {
+							_region[i] = -2;
+							_regionPixels[nRegion++] = i;
+						}
+					}
+				}
+			}
+			if (nRegion > nPixels / 4) {
+				for (int k = 0; k < nRegion; k++) {
+					_region[_regionPixels[k]] = -1;
+				}
+				return false;
+			}
+			if (nRegion == nBefore)
+				break;
+			for (int k = 0; k < nRegion; k++) {
+				_region[_regionPixels[k]] = -2;
+			}
+		}
+
+		// join segments reaching out of the region to their component; the
+		// pixels outside are the ones of the segment less those it had in
+		// the region
+		for (int k = 0; k < nTouched; k++) {
+			final int c = anchor[touched[k]];
+			final int o = 5 * k;
+			if (c < 0)
+				continue;
+			comps.addMoments(c, _stats, touched[k]);
+			if (outside[o] >= 0)
+				comps.extend(c, outside[o], outside[o + 1], outside[o + 2],
+						outside[o + 3], outside[o + 4]);
+		}
+		for (int k = 0; k < nRegion; k++) {
+			final int p = _regionPixels[k];
+			final int n = _segments[p];
+			if ((n >= 0) && (anchor[n] >= 0))
+				comps.removePixel(anchor[n], p % _nWidth, p / _nWidth);
+		}
+
+		// merge the untouched segments and the components by first pixel
+		final int nComponents = comps.size();
+		long[] order = new long[nComponents];
+		for (int c = 0; c < nComponents; c++) {
+			order[c] = ((long) comps.getFirstPixel(c) << 32) | c;
+		}
+		Arrays.sort(order);
+		int nKept = 0;
+		for (int n = 0; n < _nSegments; n++) {
+			if (anchor[n] == UNTOUCHED)
+				nKept++;
+		}
+		final int nSegments = nKept + nComponents;
+		SegmentStatistics stats = (_spareStats == null) ? new SegmentStatistics(
+				_nWidth) : _spareStats;
+		stats.setSize(nSegments);
+		short[] colours = new short[nSegments];
+		Rectangle[] boxes = new Rectangle[nSegments];
+		int[] segmentId = new int[_nSegments];
+		int[] componentId = new int[nComponents];
+		for (int a = 0, b = 0, n = 0; n < nSegments;) {
+			while ((a < _nSegments) && (anchor[a] != UNTOUCHED))
+				a++;
+			final int next = (b < nComponents) ? comps
+					.getFirstPixel((int) order[b]) : Integer.MAX_VALUE;
+			if ((a < _nSegments) && (_stats.getFirstPixel(a) < next)) {
+				// copy the untouched segments up to the next component
+				int len = 0;
+				while ((a + len < _nSegments)
+						&& (anchor[a + len] == UNTOUCHED)
+						&& (_stats.getFirstPixel(a + len) < next)) {
+					segmentId[a + len] = n + len;
+					len++;
+				}
+				stats.copy(n, _stats, a, len);
+				System.arraycopy(_colours, a, colours, n, len);
+				System.arraycopy(_boxes, a, boxes, n, len);
+				a += len;
+				n += len;
+			} else {
+				final int c = (int) order[b];
+				componentId[c] = n;
+				stats.set(n, comps, c);
+				colours[n] = comps.getColour(c);
+				boxes[n] = comps.getBoundingBox(c);
+				b++;
+				n++;
+			}
+		}
+		for (int k = 0; k < nTouched; k++) {
+			final int c = anchor[touched[k]];
+			if (c >= 0)
+				segmentId[touched[k]] = componentId[c];
+		}
+
+		// renumber the pixels from the first one whose segment may change
+		// (earlier pixels belong to earlier segments), then the region
+		int start = nPixels;
+		for (int n = 0; n < _nSegments; n++) {
+			if (segmentId[n] != n) {
+				start = _stats.getFirstPixel(n);
+				break;
+			}
+		}
+		for (int i = start; i < nPixels; i++) {
+			final int n = _segments[i];
+			if (n >= 0)
+				_segments[i] = segmentId[n];
+		}
+		for (int k = 0; k < nRegion; k++) {
+			final int p = _regionPixels[k];
+			final int r = _region[p];
+			_segments[p] = (r >= 0) ? componentId[r] : -1;
+			_region[p] = -1;
+		}
+
+		_nSegments = nSegments;
+		_colours = colours;
+		_boxes = boxes;
+		_spareStats = _stats;
+		_stats = stats;
+		return true;
+	}
+
+	// check if tile (tx, ty) or one of its eight neighbours is dirty
+	private boolean isNearDirtyTile(int tx, int ty, int nTilesX, int nTilesY) {
+		for (int y = Math.max(0, ty - 1); y <= Math.min(nTilesY - 1, ty + 1); y++) {
+			for (int x = Math.max(0, tx - 1); x <= Math.min(nTilesX - 1, tx + 1); x++) {
+				if (_dirty[y * nTilesX + x])
+					return true;
+			}
+		}
+		return false;
+	}
+
+	// label the pixels of the region by breadth first search, collecting
+	// the statistics of its components
+	private SegmentStatistics labelRegion(int nRegion) {
+		SegmentStatistics comps = new SegmentStatistics(_nWidth);
+		for (int k = 0; k < nRegion; k++) {
+			final int seed = _regionPixels[k];
+			if ((_region[seed] != -2) || (_scene[seed] == -1))
+				continue;
+			final int n = comps.addSegment();
+			final short c = _scene[seed];
+			int head = 0, tail = 0;
+			_work[tail++] = seed;
+			_region[seed] = n;
+			while (head < tail) {
+				final int p = _work[head++];
+				final int x = p % _nWidth;
+				final int y = p / _nWidth;
+				comps.addRun(n, c, x, x + 1, y);
+				if ((y > 0) && (_region[p - _nWidth] == -2)
+						&& (_scene[p - _nWidth] == c)) {
+					_region[p - _nWidth] = n;
+					_work[tail++] = p - _nWidth;
+				}
+				if ((y < _nHeight - 1) && (_region[p + _nWidth] == -2)
+						&& (_scene[p + _nWidth] == c)) {
+					_region[p + _nWidth] = n;
+					_work[tail++] = p + _nWidth;
+				}
+				if ((x > 0) && (_region[p - 1] == -2) && (_scene[p - 1] == c)) {
+					_region[p - 1] = n;
+					_work[tail++] = p - 1;
+				}
+				if ((x < _nWidth - 1) && (_region[p + 1] == -2)
+						&& (_scene[p + 1] == c)) {
+					_region[p + 1] = n;
+					_work[tail++] = p + 1;
+				}
+			}
+		}
+		return comps;
+	}
+
+	// find the first pixel and the extent (minX, maxX, minY, maxY) of the
+	// pixels of segment n outside the region, searching its bounding box
+	// from every side. returns false (with first pixel -1) if there are none
+	private boolean findOutsideExtent(int n, int[] extent, int o) {
+		final Rectangle r = _boxes[n];
+		final int x0 = r.x, x1 = Math.min(_nWidth - 1, r.x + r.width);
+		final int y0 = r.y, y1 = Math.min(_nHeight - 1, r.y + r.height);
+
+		extent[o] = -1;
+		for (int y = y0; (y <= y1) && (extent[o] < 0); y++) {
+			for (int x = x0; x <= x1; x++) {
+				if (isOutside(n, y * _nWidth + x)) {
+					extent[o] = y * _nWidth + x;
+					extent[o + 3] = y;
+					break;
+				}
+			}
+		}
+		if (extent[o] < 0)
+			return false;
+
+		final int minY = extent[o + 3];
+		search: for (int y = y1; y >= minY; y--) {
+			for (int x = x0; x <= x1; x++) {
+				if (isOutside(n, y * _nWidth + x)) {
+					extent[o + 4] = y;
+					break search;
+				}
+			}
+		}
+		final int maxY = extent[o + 4];
+		search: for (int x = x0; x <= x1; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				if (isOutside(n, y * _nWidth + x)) {
+					extent[o + 1] = x;
+					break search;
+				}
+			}
+		}
+		search: for (int x = x1; x >= x0; x--) {
+			for (int y = minY; y <= maxY; y++) {
+				if (isOutside(n, y * _nWidth + x)) {
+					extent[o + 2] = x;
+					break search;
+				}
+			}
+		}
+		return true;
+	}
+
+	// check if pixel i belongs to segment n and lies outside the region
+	private boolean isOutside(int n, int i) {
+		return (_segments[i] == n) && (_region[i] == -1);
+	}
+
+	// run every detector once and return the results as one snapshot
+	public SceneSnapshot detectAll() {
+		return new SceneSnapshot(findSlingshot(), findPigs(), findRedBirds(),
+				findBlueBirds(), findYellowBirds(), findWhiteBirds(),
+				findBlackBirds(), findTNTs(), findStones(), findIce(),
+				findWood(), findTrajPoints());
+	}
+
+	// run every detector once, concurrently in the given pool, and return
+	// the results as one snapshot. results are memoized as by the find
+	// methods, so the snapshot is identical to the one of detectAll()
+	public SceneSnapshot detectAll(ForkJoinPool pool) {
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				detectConcurrently();
+			}
+		});
+		return detectAll();
+	}
+
+	// the find methods below compute their result once per screenshot and
+	// return a copy of it on every call
+
 	//find slingshot
 	//only return one rectangle
 	public Rectangle findSlingshot() {
-		Rectangle obj;
+		if (!_slingshotDetected) {
+			_slingshot = detectSlingshot(_fill);
+			_slingshotDetected = true;
+		}
+		return (_slingshot == null) ? null : new Rectangle(_slingshot);
+	}
+
+	// find pigs in the current scene
+	public List<Rectangle> findPigs() {
+		if (_pigs == null)
+			_pigs = detectPigs();
+		return SceneSnapshot.copyOf(_pigs);
+	}
+
+	// find birds in the current scene
+	public List<Rectangle> findRedBirds() {
+		if (_redBirds == null)
+			_redBirds = detectRedBirds();
+		return SceneSnapshot.copyOf(_redBirds);
+	}
 
+	public List<Rectangle> findBlueBirds() {
+		if (_blueBirds == null)
+			_blueBirds = detectBlueBirds();
+		return SceneSnapshot.copyOf(_blueBirds);
+	}
 
-		Boolean ignorePixel[][] = new Boolean[_nHeight][_nWidth];
+	public List<Rectangle> findYellowBirds() {
+		if (_yellowBirds == null)
+			_yellowBirds = detectYellowBirds();
+		return SceneSnapshot.copyOf(_yellowBirds);
+	}
 
-		for (int i = 0; i < _nHeight; i++) {
-			for (int j = 0; j < _nWidth; j++) {
-				ignorePixel[i][j] = false;
+	public List<Rectangle> findWhiteBirds() {
+		if (_whiteBirds == null)
+			_whiteBirds = detectWhiteBirds();
+		return SceneSnapshot.copyOf(_whiteBirds);
+	}
+
+	public List<Rectangle> findBlackBirds() {
+		if (_blackBirds == null)
+			_blackBirds = detectBlackBirds();
+		return SceneSnapshot.copyOf(_blackBirds);
+	}
+
+	public List<Rectangle> findTNTs() {
+		if (_tnts == null)
+			_tnts = detectTNTs();
+		return SceneSnapshot.copyOf(_tnts);
+	}
+
+	public List<Rectangle> findStones() {
+		if (_stones == null)
+			_stones = findRegions(STONE_COLOURS, _fill);
+		return SceneSnapshot.copyOf(_stones);
+	}
+
+	public List<Rectangle> findIce() {
+		if (_ice == null)
+			_ice = findRegions(ICE_COLOURS, _fill);
+		return SceneSnapshot.copyOf(_ice);
+	}
+
+	public List<Rectangle> findWood() {
+		if (_wood == null)
+			_wood = findRegions(WOOD_COLOURS, _fill);
+		return SceneSnapshot.copyOf(_wood);
+	}
+
+	// find the outlines of the wood regions (the regions findWood gives
+	// the bounding boxes of, in the same order)
+	public List<Polygon> findWoodPolygons() {
+		if (_woodPolygons == null) {
+			_woodPolygons = findRegionPolygons(WOOD_COLOURS, _fill);
+			if (_wood == null) {
+				// the bounding boxes of the outlines are the regions' boxes
+				List<Rectangle> wood = new ArrayList<Rectangle>();
+				for (Polygon p : _woodPolygons) {
+					wood.add(p.getBounds());
+				}
+				_wood = wood;
 			}
 		}
+		List<Polygon> polygons = new ArrayList<Polygon>();
+		for (Polygon p : _woodPolygons) {
+			polygons.add(new Polygon(p.xpoints, p.ypoints, p.npoints));
+		}
+		return polygons;
+	}
 
-		for (int i = 0; i < _nHeight; i++) {
-			for (int j = 0; j < _nWidth; j++) {
-				if ((_scene[i][j] != 345) || ignorePixel[i][j])
+	// find which blocks and pigs rest on which. the blocks of the graph are
+	// the wood, then the stones, the ice and the TNT, each in the order
+	// their detectors give them
+	public SupportGraph findSupportGraph() {
+		List<Rectangle> blocks = new ArrayList<Rectangle>(findWood());
+		blocks.addAll(findStones());
+		blocks.addAll(findIce());
+		blocks.addAll(findTNTs());
+		return new SupportGraph(blocks, findPigs());
+	}
+
+	// find trajectory points
+	public ArrayList<Point> findTrajPoints() {
+		if (_trajPoints == null)
+			_trajPoints = detectTrajPoints(_fill, findSlingshot());
+		return SceneSnapshot.copyOfPoints(_trajPoints);
+	}
+
+	// find the trajectory points of a shot released from a given point,
+	// searching only a band around the trajectory a new TrajectoryPlanner
+	// predicts for it. the points are ordered away from the slingshot, as
+	// TrajectoryPlanner.adjustTrajectory takes them
+	public ArrayList<Point> findTrajPoints(Rectangle sling, Point release) {
+		return findTrajPoints(sling, release, new TrajectoryPlanner());
+	}
+
+	// find the trajectory points of a shot, searching around the trajectory
+	// a given (calibrated) planner predicts for it
+	public ArrayList<Point> findTrajPoints(Rectangle sling, Point release,
+			TrajectoryPlanner planner) {
+		ArrayList<Point> points = new ArrayList<Point>();
+
+		final boolean[] trajectory = TRAJECTORY_COLOURS.lookupTable();
+		_fill.clear();
+		for (int x = trajectoryStart(sling); x < _nWidth; x++) {
+			final int y = planner.getYCoordinate(sling, release, x);
+			final int band = trajectoryBand(sling, x);
+			final int y0 = Math.max(0, y - band);
+			final int y1 = Math.min(_nHeight, y + band + 1);
+			for (int i = y0 * _nWidth + x; i < y1 * _nWidth; i += _nWidth) {
+				if (!trajectory[_scene[i] + 1] || _fill.isVisited(i))
 					continue;
-				obj = new Rectangle(j, i, 0, 0);
-				LinkedList<Point> l = new LinkedList<Point>();
-
-				LinkedList<Point> pointsinRec = new LinkedList<Point>();
-
-				l.add(new Point(j, i));
-				ignorePixel[i][j] = true;
-				while (true) {
-					if (l.isEmpty())
-						break;
-					Point p = l.pop();
-					// check if the colours of the adjacent points of p is
-					// belong to slingshot
-					
-					//check underneath pixel
-					if (p.y < _nHeight - 1)
-						if ((_scene[p.y + 1][p.x] == 345
-								|| _scene[p.y + 1][p.x] == 418
-								|| _scene[p.y + 1][p.x] == 273
-								|| _scene[p.y + 1][p.x] == 281
-								|| _scene[p.y + 1][p.x] == 209
-								|| _scene[p.y + 1][p.x] == 346
-								|| _scene[p.y + 1][p.x] == 354
-								|| _scene[p.y + 1][p.x] == 282 || _scene[p.y + 1][p.x] == 351)
-								&& !ignorePixel[p.y + 1][p.x]) {
-							l.add(new Point(p.x, p.y + 1));
-							obj.add(p.x, p.y + 1);
-							pointsinRec.add(new Point(p.x, p.y + 1));
-						}
-					
-					//check right pixel
-					if (p.x < _nWidth - 1)
-						if ((_scene[p.y][p.x + 1] == 345
-								|| _scene[p.y][p.x + 1] == 418
-								|| _scene[p.y][p.x + 1] == 346
-								|| _scene[p.y][p.x + 1] == 354
-								|| _scene[p.y][p.x + 1] == 273
-								|| _scene[p.y][p.x + 1] == 281
-								|| _scene[p.y][p.x + 1] == 209
-								|| _scene[p.y][p.x + 1] == 282 || _scene[p.y][p.x + 1] == 351)
-								&& !ignorePixel[p.y][p.x + 1]) {
-							l.add(new Point(p.x + 1, p.y));
-							obj.add(p.x + 1, p.y);
-							pointsinRec.add(new Point(p.x, p.y + 1));
-						}
+				// trajectory points are small 8-connected blobs
+				Rectangle obj = new Rectangle();
+				_fill.fill(_scene, i, TRAJECTORY_COLOURS, true, obj);
+				final Point p = new Point((int) obj.getCenterX(),
+						(int) obj.getCenterY());
+				if ((obj.height * obj.width <= 25)
+						&& !RegionOfInterest.HUD.contains(p))
+					points.add(p);
+			}
+		}
+		Collections.sort(points, new Comparator<Point>() {
+			@Override
+			public int compare(Point a, Point b) {
+				return (a.x != b.x) ? a.x - b.x : a.y - b.y;
+			}
+		});
 
-					//check upper pixel
-					if (p.y > 0)
-						if ((_scene[p.y - 1][p.x] == 345
-								|| _scene[p.y - 1][p.x] == 418
-								|| _scene[p.y - 1][p.x] == 346
-								|| _scene[p.y - 1][p.x] == 354
-								|| _scene[p.y - 1][p.x] == 273
-								|| _scene[p.y - 1][p.x] == 281
-								|| _scene[p.y - 1][p.x] == 209
-								|| _scene[p.y - 1][p.x] == 282 || _scene[p.y - 1][p.x] == 351)
-								&& !ignorePixel[p.y - 1][p.x]) {
-							l.add(new Point(p.x, p.y - 1));
-							obj.add(p.x, p.y - 1);
-							pointsinRec.add(new Point(p.x, p.y + 1));
-						}
+		// remove noise points, far from a parabola fitted to the others
+		final double maxError = 10;
+		ParabolaFitter fitter = new ParabolaFitter();
+		for (Point p : points) {
+			fitter.add(p.x, p.y);
+		}
+		if (fitter.solve() && (fitter.refit(points, maxError, 5) >= 3)
+				&& fitter.solve()) {
+			ArrayList<Point> kept = new ArrayList<Point>();
+			for (Point p : points) {
+				if (Math.abs(fitter.evaluate(p.x) - p.y) <= maxError)
+					kept.add(p);
+			}
+			points = kept;
+		}
+		return points;
+	}
 
-					//check left pixel
-					if (p.x > 0)
-						if ((_scene[p.y][p.x - 1] == 345
-								|| _scene[p.y][p.x - 1] == 418
-								|| _scene[p.y][p.x - 1] == 346
-								|| _scene[p.y][p.x - 1] == 354
-								|| _scene[p.y][p.x - 1] == 273
-								|| _scene[p.y][p.x - 1] == 281
-								|| _scene[p.y][p.x - 1] == 209
-								|| _scene[p.y][p.x - 1] == 282 || _scene[p.y][p.x - 1] == 351)
-								&& !ignorePixel[p.y][p.x - 1]) {
-							l.add(new Point(p.x - 1, p.y));
-							obj.add(p.x - 1, p.y);
-							pointsinRec.add(new Point(p.x, p.y + 1));
-						}
+	// region of interest covering the band findTrajPoints(sling, release,
+	// planner) searches, so that a screenshot taken after a shot can be
+	// processed only there
+	public static RegionOfInterest trajectoryCorridor(Rectangle sling,
+			Point release, TrajectoryPlanner planner, int width, int height) {
+		// trajectory points cut by the region would move, so keep a margin
+		final int margin = 5;
+		List<Rectangle> corridor = new ArrayList<Rectangle>();
+		for (int x0 = trajectoryStart(sling); x0 < width; x0 += TILE_SIZE) {
+			final int x1 = Math.min(width, x0 + TILE_SIZE);
+			int y0 = height;
+			int y1 = 0;
+			for (int x = x0; x < x1; x++) {
+				final int y = planner.getYCoordinate(sling, release, x);
+				final int band = trajectoryBand(sling, x) + margin;
+				y0 = Math.min(y0, Math.max(0, y - band));
+				y1 = Math.max(y1, Math.min(height, y + band + 1));
+			}
+			if (y0 < y1)
+				corridor.add(VisionUtils.cropBoundingBox(new Rectangle(x0
+						- margin, y0, x1 - x0 + 2 * margin, y1 - y0), width,
+						height));
+		}
+		if (corridor.isEmpty()) {
+			// an empty list would include the whole scene
+			corridor.add(new Rectangle());
+		}
+		return new RegionOfInterest(corridor,
+				Arrays.asList(RegionOfInterest.HUD));
+	}
 
-					//ignore checked pixels
-					if (p.y < _nHeight - 1)
-						ignorePixel[p.y + 1][p.x] = true;
-					if (p.x < _nWidth - 1)
-						ignorePixel[p.y][p.x + 1] = true;
-					if (p.y > 0)
-						ignorePixel[p.y - 1][p.x] = true;
-					if (p.x > 0)
-						ignorePixel[p.y][p.x - 1] = true;
+	// first column searched for trajectory points, clear of the slingshot
+	// and the bird on it
+	private static int trajectoryStart(Rectangle sling) {
+		return (int) sling.getCenterX() + sling.width * 2;
+	}
 
-				}
-				int[] hist = histogram(obj);
-
-				// abandon shelf underneath
-				if (obj.height > 10) {
-					Rectangle col = new Rectangle(obj.x, obj.y, 1, obj.height);
-					int[] histCol = histogram(col);
-				
-
-					if (_scene[obj.y][obj.x] == 511
-							|| _scene[obj.y][obj.x] == 447) {
-						for (int m = obj.y; m < obj.y + obj.height; m++) {
-							if (_scene[m][obj.x] == 345
-									|| _scene[m][obj.x] == 418
-									|| _scene[m][obj.x] == 346
-									|| _scene[m][obj.x] == 354
-									|| _scene[m][obj.x] == 273
-									|| _scene[m][obj.x] == 281
-									|| _scene[m][obj.x] == 209
-									|| _scene[m][obj.x] == 282
-									|| _scene[m][obj.x] == 351) {
-								obj.setSize(obj.width, m - obj.y);
-								break;
-							}
-						}
-					}
+	// half height of the band searched for trajectory points at column x
+	private static int trajectoryBand(Rectangle sling, int x) {
+		return TRAJECTORY_BAND + (x - trajectoryStart(sling))
+				/ TRAJECTORY_SPREAD;
+	}
+
+	// fork the detectors that have not run yet and store their results; the
+	// block detectors only read the segmentation, and every flood fill
+	// detector running concurrently gets its own engine
+	private void detectConcurrently() {
+		if ((_parallelFills == null)
+				|| (_parallelFills[0].getWidth() != _nWidth)
+				|| (_parallelFills[0].getHeight() != _nHeight)) {
+			_parallelFills = new FloodFill[3];
+			for (int k = 0; k < _parallelFills.length; k++) {
+				_parallelFills[k] = new FloodFill(_nWidth, _nHeight);
+			}
+		}
+		final FloodFill[] fills = _parallelFills;
 
-					while (histCol[511] >= obj.height * 0.8) {
-						obj.setBounds(obj.x + 1, obj.y, obj.width - 1,
-								obj.height);
-						col = new Rectangle(obj.x + 1, obj.y, 1, obj.height);
-						histCol = histogram(col);
+		final ForkJoinTask<List<Rectangle>> pigs = (_pigs != null) ? null
+				: fork(new Callable<List<Rectangle>>() {
+					public List<Rectangle> call() {
+						return detectPigs();
+					}
+				});
+		final ForkJoinTask<List<Rectangle>> redBirds = (_redBirds != null) ? null
+				: fork(new Callable<List<Rectangle>>() {
+					public List<Rectangle> call() {
+						return detectRedBirds();
+					}
+				});
+		final ForkJoinTask<List<Rectangle>> blueBirds = (_blueBirds != null) ? null
+				: fork(new Callable<List<Rectangle>>() {
+					public List<Rectangle> call() {
+						return detectBlueBirds();
+					}
+				});
+		final ForkJoinTask<List<Rectangle>> yellowBirds = (_yellowBirds != null) ? null
+				: fork(new Callable<List<Rectangle>>() {
+					public List<Rectangle> call() {
+						return detectYellowBirds();
 					}
+				});
+		final ForkJoinTask<List<Rectangle>> whiteBirds = (_whiteBirds != null) ? null
+				: fork(new Callable<List<Rectangle>>() {
+					public List<Rectangle> call() {
+						return detectWhiteBirds();
+					}
+				});
+		final ForkJoinTask<List<Rectangle>> blackBirds = (_blackBirds != null) ? null
+				: fork(new Callable<List<Rectangle>>() {
+					public List<Rectangle> call() {
+						return detectBlackBirds();
+					}
+				});
+		final ForkJoinTask<List<Rectangle>> tnts = (_tnts != null) ? null
+				: fork(new Callable<List<Rectangle>>() {
+					public List<Rectangle> call() {
+						return detectTNTs();
+					}
+				});
+		final ForkJoinTask<List<Rectangle>> stones = (_stones != null) ? null
+				: fork(new Callable<List<Rectangle>>() {
+					public List<Rectangle> call() {
+						return findRegions(STONE_COLOURS, fills[0]);
+					}
+				});
+		final ForkJoinTask<List<Rectangle>> ice = (_ice != null) ? null
+				: fork(new Callable<List<Rectangle>>() {
+					public List<Rectangle> call() {
+						return findRegions(ICE_COLOURS, fills[1]);
+					}
+				});
+		final ForkJoinTask<List<Rectangle>> wood = (_wood != null) ? null
+				: fork(new Callable<List<Rectangle>>() {
+					public List<Rectangle> call() {
+						return findRegions(WOOD_COLOURS, fills[2]);
+					}
+				});
+
+		// the trajectory fit needs the slingshot, so both run in this task
+		// one after the other, sharing the default engine
+		findSlingshot();
+		if (_trajPoints == null)
+			_trajPoints = detectTrajPoints(_fill, _slingshot);
+
+		if (pigs != null)
+			_pigs = pigs.join();
+		if (redBirds != null)
+			_redBirds = redBirds.join();
+		if (blueBirds != null)
+			_blueBirds = blueBirds.join();
+		if (yellowBirds != null)
+			_yellowBirds = yellowBirds.join();
+		if (whiteBirds != null)
+			_whiteBirds = whiteBirds.join();
+		if (blackBirds != null)
+			_blackBirds = blackBirds.join();
+		if (tnts != null)
+			_tnts = tnts.join();
+		if (stones != null)
+			_stones = stones.join();
+		if (ice != null)
+			_ice = ice.join();
+		if (wood != null)
+			_wood = wood.join();
+	}
 
-					col = new Rectangle(obj.x + obj.width, obj.y, 1, obj.height);
-					histCol = histogram(col);
-					while (histCol[511] >= obj.height * 0.8 && obj.height > 10) {
-						obj.setSize(obj.width - 1, obj.height);
-						col = new Rectangle(obj.x + obj.width, obj.y, 1,
-								obj.height);
-						histCol = histogram(col);
+	// fork a detector in the current pool
+	private static <T> ForkJoinTask<T> fork(Callable<T> detector) {
+		return ForkJoinTask.adapt(detector).fork();
+	}
+
+	// detect the slingshot (only return one rectangle)
+	private Rectangle detectSlingshot(FloodFill fill) {
+		final int seed = SLINGSHOT_COLOURS.getSeed();
+		fill.clear();
+		for (int i = _scanStart; i < _scanEnd; i++) {
+			if ((_scene[i] != seed) || fill.isVisited(i))
+				continue;
+			// grow the region over colours belonging to the slingshot
+			Rectangle obj = new Rectangle();
+			fill.fill(_scene, i, SLINGSHOT_COLOURS, false, obj);
+
+			final int nSeed = countColour(obj, seed);
+			final int nBlack = countColour(obj, 64);
+
+			// abandon shelf underneath
+			if (obj.height > 10) {
+				Rectangle col = new Rectangle(obj.x, obj.y, 1, obj.height);
+
+				if (_scene[obj.y * _nWidth + obj.x] == 511
+						|| _scene[obj.y * _nWidth + obj.x] == 447) {
+					for (int m = obj.y; m < obj.y + obj.height; m++) {
+						if (SLINGSHOT_COLOURS.accept(_scene[m * _nWidth + obj.x])) {
+							obj.setSize(obj.width, m - obj.y);
+							break;
+						}
 					}
 				}
 
-				if (obj.width > obj.height)
-					continue;
+				while (countColour(col, 511) >= obj.height * 0.8) {
+					obj.setBounds(obj.x + 1, obj.y, obj.width - 1, obj.height);
+					col.setBounds(obj.x + 1, obj.y, 1, obj.height);
+				}
 
-				if ((hist[345] > Math.max(32, 0.1 * obj.width * obj.height))
-						&& (hist[64] != 0)) {
-					obj.add(new Rectangle(obj.x - obj.width / 10, obj.y
-							- obj.height / 3, obj.width / 10 * 12,
-							obj.height / 3 * 4));
-					return obj;
+				col.setBounds(obj.x + obj.width, obj.y, 1, obj.height);
+				while (countColour(col, 511) >= obj.height * 0.8
+						&& obj.height > 10) {
+					obj.setSize(obj.width - 1, obj.height);
+					col.setBounds(obj.x + obj.width, obj.y, 1, obj.height);
 				}
 			}
+
+			if (obj.width > obj.height)
+				continue;
+
+			if ((nSeed > Math.max(32, 0.1 * obj.width * obj.height))
+					&& (nBlack != 0)) {
+				obj.add(new Rectangle(obj.x - obj.width / 10, obj.y
+						- obj.height / 3, obj.width / 10 * 12,
+						obj.height / 3 * 4));
+				return obj;
+			}
 		}
 		return null;
 	}
 
-	// find pigs in the current scene
-	public List<Rectangle> findPigs() {
+	// detect pigs in the current scene
+	private List<Rectangle> detectPigs() {
 		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
 
 		// find candidates
-		Boolean ignore[] = new Boolean[_nSegments];
-		Arrays.fill(ignore, false);
-
-		for (int n = 0; n < _nSegments; n++) {
-			if ((_colours[n] != 376) || ignore[n])
+		final int[] pigs = segmentsOf(PIG_COLOURS.getColours());
+		Rectangle[] dilated = new Rectangle[pigs.length];
+		for (int i = 0; i < pigs.length; i++) {
+			final Rectangle box = _boxes[pigs[i]];
+			dilated[i] = VisionUtils.dialateRectangle(box, box.width / 2 + 1,
+					box.height / 2 + 1);
+		}
+		final SegmentGrid candidates = new SegmentGrid(_nWidth, _nHeight,
+				pigs, dilated);
+		final SegmentGrid secondary = boxGrid(PIG_SECONDARY_COLOURS);
+		boolean ignore[] = new boolean[_nSegments];
+
+		for (int i = 0; i < pigs.length; i++) {
+			final int n = pigs[i];
+			if (ignore[n])
 				continue;
 
 			// dilate bounding box of colour 376
-			Rectangle bounds = VisionUtils.dialateRectangle(_boxes[n],
-					_boxes[n].width / 2 + 1, _boxes[n].height / 2 + 1);
-			Rectangle obj = _boxes[n];
+			Rectangle bounds = new Rectangle(dilated[i]);
+			Rectangle obj = new Rectangle(_boxes[n]);
 
 			// look for overlapping bounding boxes of colour 376
-			for (int m = n + 1; m < _nSegments; m++) {
-				if (_colours[m] != 376)
-					continue;
-				final Rectangle bounds2 = VisionUtils.dialateRectangle(
-						_boxes[m], _boxes[m].width / 2 + 1,
-						_boxes[m].height / 2 + 1);
-				if (bounds.intersects(bounds2)) {
-					bounds.add(bounds2);
-					obj.add(_boxes[m]);
-					ignore[m] = true;
-				}
+			for (int j = candidates.next(bounds, i); j >= 0; j = candidates
+					.next(bounds, j)) {
+				bounds.add(dilated[j]);
+				obj.add(_boxes[pigs[j]]);
+				ignore[pigs[j]] = true;
 			}
 
 			// look for overlapping bounding boxes of colour 250
-			Boolean bValidObject = false;
-			for (int m = 0; m < _nSegments; m++) {
-				if (_colours[m] != 250)
-					continue;
-				if (bounds.intersects(_boxes[m])) {
-					bValidObject = true;
-					break;
-				}
-			}
+			Boolean bValidObject = secondary.next(bounds, -1) >= 0;
 
 			// add object if valid
 			if (bValidObject) {
@@ -259,45 +1084,45 @@ public class Vision {
 		return objects;
 	}
 
-	// find birds in the current scene
-	public List<Rectangle> findRedBirds() {
+	// detect birds in the current scene
+	private List<Rectangle> detectRedBirds() {
 		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
 
 		// test for red birds (385, 488, 501)
-		Boolean ignore[] = new Boolean[_nSegments];
-		Arrays.fill(ignore, false);
-
-		for (int n = 0; n < _nSegments; n++) {
-			if ((_colours[n] != 385) || ignore[n])
+		final int[] birds = segmentsOf(RED_BIRD_COLOURS.getColours());
+		Rectangle[] dilated = new Rectangle[birds.length];
+		for (int i = 0; i < birds.length; i++) {
+			final Rectangle box = _boxes[birds[i]];
+			dilated[i] = VisionUtils.dialateRectangle(box, 1,
+					box.height / 2 + 1);
+		}
+		final SegmentGrid candidates = new SegmentGrid(_nWidth, _nHeight,
+				birds, dilated);
+		final SegmentGrid secondary = boxGrid(RED_BIRD_SECONDARY_COLOURS);
+		boolean ignore[] = new boolean[_nSegments];
+
+		for (int i = 0; i < birds.length; i++) {
+			final int n = birds[i];
+			if (ignore[n])
 				continue;
 
 			// dilate bounding box around colour 385
-			Rectangle bounds = VisionUtils.dialateRectangle(_boxes[n], 1,
-					_boxes[n].height / 2 + 1);
-			Rectangle obj = _boxes[n];
+			Rectangle bounds = new Rectangle(dilated[i]);
+			Rectangle obj = new Rectangle(_boxes[n]);
 
 			// look for overlapping bounding boxes of colour 385
-			for (int m = n + 1; m < _nSegments; m++) {
-				if (_colours[m] != 385)
-					continue;
-				final Rectangle bounds2 = VisionUtils.dialateRectangle(
-						_boxes[m], 1, _boxes[m].height / 2 + 1);
-				if (bounds.intersects(bounds2)) {
-					bounds.add(bounds2);
-					obj.add(_boxes[m]);
-					ignore[m] = true;
-				}
+			for (int j = candidates.next(bounds, i); j >= 0; j = candidates
+					.next(bounds, j)) {
+				bounds.add(dilated[j]);
+				obj.add(_boxes[birds[j]]);
+				ignore[birds[j]] = true;
 			}
 
 			// look for overlapping bounding boxes of colours 488 and 501
 			Boolean bValidObject = false;
-			for (int m = 0; m < _nSegments; m++) {
-				if ((_colours[m] != 488) && (_colours[m] != 501))
-					continue;
-				if (bounds.intersects(_boxes[m])) {
-					obj.add(_boxes[m]);
-					bValidObject = true;
-				}
+			for (int j : secondary.intersecting(bounds)) {
+				obj.add(secondary.rect(j));
+				bValidObject = true;
 			}
 
 			if (bValidObject) {
@@ -309,57 +1134,52 @@ public class Vision {
 		return objects;
 	}
 
-	public List<Rectangle> findBlueBirds() {
+	private List<Rectangle> detectBlueBirds() {
 		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
 
 		// test for blue birds (238)
-		Boolean ignore[] = new Boolean[_nSegments];
-		Arrays.fill(ignore, false);
-
-		for (int n = 0; n < _nSegments; n++) {
-			if ((_colours[n] != 238) || ignore[n])
+		final int[] parts = segmentsOf(BLUE_BIRD_COLOURS.getColours());
+		Rectangle[] dilated = new Rectangle[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			final Rectangle box = _boxes[parts[i]];
+			dilated[i] = VisionUtils.dialateRectangle(box, 2,
+					box.height / 2 + 1);
+		}
+		final SegmentGrid candidates = new SegmentGrid(_nWidth, _nHeight,
+				parts, dilated);
+		final SegmentGrid secondary = boxGrid(BLUE_BIRD_SECONDARY_COLOURS);
+		boolean ignore[] = new boolean[_nSegments];
+
+		for (int i = 0; i < parts.length; i++) {
+			final int n = parts[i];
+			if ((_colours[n] != BLUE_BIRD_COLOURS.getSeed()) || ignore[n])
 				continue;
 
 			// dilate bounding box around colour 238
 			Rectangle bounds = VisionUtils.dialateRectangle(_boxes[n], 1,
 					_boxes[n].height / 2 + 1);
-			Rectangle obj = _boxes[n];
+			Rectangle obj = new Rectangle(_boxes[n]);
 
 			// look for overlapping bounding boxes of colours 238, 165, 280,
 			// 344, 488, 416
-			for (int m = n + 1; m < _nSegments; m++) {
-				if ((_colours[m] != 238) && (_colours[m] != 165)
-						&& (_colours[m] != 280) && (_colours[m] != 344)
-						&& (_colours[m] != 488) && (_colours[m] != 416))
-					continue;
-				final Rectangle bounds2 = VisionUtils.dialateRectangle(
-						_boxes[m], 2, _boxes[m].height / 2 + 1);
-				if (bounds.intersects(bounds2)) {
-					bounds.add(bounds2);
-					obj.add(_boxes[m]);
-					ignore[m] = true;
-				}
+			for (int j = candidates.next(bounds, i); j >= 0; j = candidates
+					.next(bounds, j)) {
+				bounds.add(dilated[j]);
+				obj.add(_boxes[parts[j]]);
+				ignore[parts[j]] = true;
 			}
 
-			for (int m = n + 1; m < _nSegments; m++) {
-				if (_colours[m] != 238)
-					continue;
-				final Rectangle bounds2 = VisionUtils.dialateRectangle(
-						_boxes[m], 2, _boxes[m].height / 2 + 1);
-				if (bounds.intersects(bounds2)) {
-					ignore[m] = true;
-				}
+			for (int j = candidates.next(bounds, i); j >= 0; j = candidates
+					.next(bounds, j)) {
+				if (_colours[parts[j]] == BLUE_BIRD_COLOURS.getSeed())
+					ignore[parts[j]] = true;
 			}
 
 			// look for overlapping bounding boxes of colours 488
 			Boolean bValidObject = false;
-			for (int m = 0; m < _nSegments; m++) {
-				if (_colours[m] != 488)
-					continue;
-				if (bounds.intersects(_boxes[m])) {
-					obj.add(_boxes[m]);
-					bValidObject = true;
-				}
+			for (int j : secondary.intersecting(bounds)) {
+				obj.add(secondary.rect(j));
+				bValidObject = true;
 			}
 
 			if (bValidObject && (obj.width > 3)) {
@@ -371,39 +1191,40 @@ public class Vision {
 		return objects;
 	}
 
-	public List<Rectangle> findYellowBirds() {
+	private List<Rectangle> detectYellowBirds() {
 		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
 
 		// test for blue birds (497)
-		Boolean ignore[] = new Boolean[_nSegments];
-		Arrays.fill(ignore, false);
+		final int[] birds = segmentsOf(YELLOW_BIRD_COLOURS.getColours());
+		Rectangle[] dilated = new Rectangle[birds.length];
+		for (int i = 0; i < birds.length; i++) {
+			dilated[i] = VisionUtils.dialateRectangle(_boxes[birds[i]], 2, 2);
+		}
+		final SegmentGrid candidates = new SegmentGrid(_nWidth, _nHeight,
+				birds, dilated);
+		boolean ignore[] = new boolean[_nSegments];
 
-		for (int n = 0; n < _nSegments; n++) {
-			if ((_colours[n] != 497) || ignore[n])
+		for (int i = 0; i < birds.length; i++) {
+			final int n = birds[i];
+			if (ignore[n])
 				continue;
 
 			// dilate bounding box around colour 497
-			Rectangle bounds = VisionUtils.dialateRectangle(_boxes[n], 2, 2);
-			Rectangle obj = _boxes[n];
+			Rectangle bounds = new Rectangle(dilated[i]);
+			Rectangle obj = new Rectangle(_boxes[n]);
 
 			// look for overlapping bounding boxes of colours 497
-			for (int m = n + 1; m < _nSegments; m++) {
-				if (_colours[m] != 497)
-					continue;
-				final Rectangle bounds2 = VisionUtils.dialateRectangle(
-						_boxes[m], 2, 2);
-				if (bounds.intersects(bounds2)) {
-					bounds.add(bounds2);
-					obj.add(_boxes[m]);
-					ignore[m] = true;
-				}
+			for (int j = candidates.next(bounds, i); j >= 0; j = candidates
+					.next(bounds, j)) {
+				bounds.add(dilated[j]);
+				obj.add(_boxes[birds[j]]);
+				ignore[birds[j]] = true;
 			}
 
 			// confirm secondary colours 288
 			obj = VisionUtils.dialateRectangle(obj, 2, 2);
 			obj = VisionUtils.cropBoundingBox(obj, _nWidth, _nHeight);
-			int[] hist = histogram(obj);
-			if (hist[288] > 0) {
+			if (countColour(obj, 288) > 0) {
 				objects.add(obj);
 			}
 		}
@@ -411,46 +1232,45 @@ public class Vision {
 		return objects;
 	}
 
-	public List<Rectangle> findWhiteBirds() {
+	private List<Rectangle> detectWhiteBirds() {
 		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
 
 		// test for white birds (490)
-		Boolean ignore[] = new Boolean[_nSegments];
-		Arrays.fill(ignore, false);
+		final int[] parts = segmentsOf(WHITE_BIRD_COLOURS.getColours());
+		Rectangle[] dilated = new Rectangle[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			dilated[i] = VisionUtils.dialateRectangle(_boxes[parts[i]], 2, 2);
+		}
+		final SegmentGrid candidates = new SegmentGrid(_nWidth, _nHeight,
+				parts, dilated);
+		boolean ignore[] = new boolean[_nSegments];
 
-		for (int n = 0; n < _nSegments; n++) {
-			if ((_colours[n] != 490) || ignore[n])
+		for (int i = 0; i < parts.length; i++) {
+			final int n = parts[i];
+			if ((_colours[n] != WHITE_BIRD_COLOURS.getSeed()) || ignore[n])
 				continue;
 
 			// dilate bounding box around colour 490
-			Rectangle bounds = VisionUtils.dialateRectangle(_boxes[n], 2, 2);
-			Rectangle obj = _boxes[n];
+			Rectangle bounds = new Rectangle(dilated[i]);
+			Rectangle obj = new Rectangle(_boxes[n]);
 
 			// look for overlapping bounding boxes of colour 490
-			for (int m = n + 1; m < _nSegments; m++) {
-				if (_colours[m] != 490
-						&& _colours[m] != 508
-						&& _colours[m] != 510)
-					continue;
-				final Rectangle bounds2 = VisionUtils.dialateRectangle(
-						_boxes[m], 2, 2);
-				if (bounds.intersects(bounds2)) {
-					bounds.add(bounds2);
-					obj.add(_boxes[m]);
-					ignore[m] = true;
-				}
+			for (int j = candidates.next(bounds, i); j >= 0; j = candidates
+					.next(bounds, j)) {
+				bounds.add(dilated[j]);
+				obj.add(_boxes[parts[j]]);
+				ignore[parts[j]] = true;
 			}
 
 			// confirm secondary colour 510
 			obj = VisionUtils.dialateRectangle(obj, 2, 2);
 			obj = VisionUtils.cropBoundingBox(obj, _nWidth, _nHeight);
-			   // remove objects too high or too low in the image 
+			// remove objects too high or too low in the image
 			// (probably false positives)
 			if ((obj.y < 60) || (obj.y > 385)) {
 				continue;
-		                     }
-			int[] hist = histogram(obj);
-			if (hist[510] > 0 && hist[508] > 0) {
+			}
+			if (countColour(obj, 510) > 0 && countColour(obj, 508) > 0) {
 				objects.add(obj);
 			}
 		}
@@ -458,42 +1278,41 @@ public class Vision {
 		return objects;
 	}
 
-	public List<Rectangle> findBlackBirds() {
+	private List<Rectangle> detectBlackBirds() {
 		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
 
 		// test for white birds (488)
-		Boolean ignore[] = new Boolean[_nSegments];
-		Arrays.fill(ignore, false);
+		final int[] parts = segmentsOf(BLACK_BIRD_COLOURS.getColours());
+		Rectangle[] dilated = new Rectangle[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			dilated[i] = VisionUtils.dialateRectangle(_boxes[parts[i]], 2, 2);
+		}
+		final SegmentGrid candidates = new SegmentGrid(_nWidth, _nHeight,
+				parts, dilated);
+		boolean ignore[] = new boolean[_nSegments];
 
-		for (int n = 0; n < _nSegments; n++) {
-			if ((_colours[n] != 488) || ignore[n])
+		for (int i = 0; i < parts.length; i++) {
+			final int n = parts[i];
+			if ((_colours[n] != BLACK_BIRD_COLOURS.getSeed()) || ignore[n])
 				continue;
 
 			// dilate bounding box around colour 488
-			Rectangle bounds = VisionUtils.dialateRectangle(_boxes[n], 2, 2);
-			Rectangle obj = _boxes[n];
+			Rectangle bounds = new Rectangle(dilated[i]);
+			Rectangle obj = new Rectangle(_boxes[n]);
 
 			// look for overlapping bounding boxes of colour 488
-			for (int m = n + 1; m < _nSegments; m++) {
-				if (_colours[m] != 488
-						&& _colours[m] != 146
-						&& _colours[m] != 64
-						&& _colours[m] != 0)
-					continue;
-				final Rectangle bounds2 = VisionUtils.dialateRectangle(
-						_boxes[m], 2, 2);
-				if (bounds.intersects(bounds2)) {
-					bounds.add(bounds2);
-					obj.add(_boxes[m]);
-					ignore[m] = true;
-				}
+			for (int j = candidates.next(bounds, i); j >= 0; j = candidates
+					.next(bounds, j)) {
+				bounds.add(dilated[j]);
+				obj.add(_boxes[parts[j]]);
+				ignore[parts[j]] = true;
 			}
 
 			// confirm secondary colour
 			obj = VisionUtils.dialateRectangle(obj, 2, 2);
 			obj = VisionUtils.cropBoundingBox(obj, _nWidth, _nHeight);
-			int[] hist = histogram(obj);
-			if ((hist[0] > Math.max(32, 0.1 * obj.width * obj.height))&& hist[64] > 0 && hist[385] == 0) {
+			if ((countColour(obj, 0) > Math.max(32, 0.1 * obj.width * obj.height))
+					&& countColour(obj, 64) > 0 && countColour(obj, 385) == 0) {
 				objects.add(obj);
 			}
 		}
@@ -501,267 +1320,83 @@ public class Vision {
 		return objects;
 	}
 
-	public List<Rectangle> findStones() {
+	// find regions seeded by colour seed and grown over the given colours,
+	// ignoring small regions and regions inside the menu
+	private List<Rectangle> findRegions(ColourClass colours, FloodFill fill) {
 		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
 
-		
-		Boolean ignorePixel[][] = new Boolean[_nHeight][_nWidth];
-
-		for (int i = 0; i < _nHeight; i++) {
-			for (int j = 0; j < _nWidth; j++) {
-				ignorePixel[i][j] = false;
-			}
+		final int seed = colours.getSeed();
+		fill.clear();
+		for (int i = _scanStart; i < _scanEnd; i++) {
+			if ((_scene[i] != seed) || fill.isVisited(i))
+				continue;
+			Rectangle obj = new Rectangle();
+			fill.fill(_scene, i, colours, false, obj);
+			if (obj.width * obj.height > _regionThreshold
+					&& !RegionOfInterest.HUD.contains(obj))
+				objects.add(obj);
 		}
 
-		for (int i = 0; i < _nHeight; i++) {
-			for (int j = 0; j < _nWidth; j++) {
-				if ((_scene[i][j] != 365) || ignorePixel[i][j])
-					continue;
-				Rectangle obj = new Rectangle(j, i, 0, 0);
-				LinkedList<Point> l = new LinkedList<Point>();
-				l.add(new Point(j, i));
-				ignorePixel[i][j] = true;
-				while (true) {
-					if (l.isEmpty())
-						break;
-					Point p = l.pop();
-					// check if the colours of the adjacent points of p is
-					// belong to stone
-					if (p.y < _nHeight - 1)
-						if ((_scene[p.y + 1][p.x] == 365)
-								&& !ignorePixel[p.y + 1][p.x]) {
-							l.add(new Point(p.x, p.y + 1));
-							obj.add(p.x, p.y + 1);
-						}
-					if (p.x < _nWidth - 1)
-						if ((_scene[p.y][p.x + 1] == 365)
-								&& !ignorePixel[p.y][p.x + 1]) {
-							l.add(new Point(p.x + 1, p.y));
-							obj.add(p.x + 1, p.y);
-						}
-
-					if (p.y > 0)
-						if ((_scene[p.y - 1][p.x] == 365)
-								&& !ignorePixel[p.y - 1][p.x]) {
-							l.add(new Point(p.x, p.y - 1));
-							obj.add(p.x, p.y - 1);
-						}
-
-					if (p.x > 0)
-						if ((_scene[p.y][p.x - 1] == 365)
-								&& !ignorePixel[p.y][p.x - 1]) {
-							l.add(new Point(p.x - 1, p.y));
-							obj.add(p.x - 1, p.y);
-						}
-
-					if (p.y < _nHeight - 1)
-						ignorePixel[p.y + 1][p.x] = true;
-					if (p.x < _nWidth - 1)
-						ignorePixel[p.y][p.x + 1] = true;
-					if (p.y > 0)
-						ignorePixel[p.y - 1][p.x] = true;
-					if (p.x > 0)
-						ignorePixel[p.y][p.x - 1] = true;
-
-				}
-				if (obj.width * obj.height > _regionThreshold
-						&& !(new Rectangle(0, 0, 190, 55).contains(obj)))
-					objects.add(obj);
-			}
-		}
 		return objects;
 	}
 
-	public List<Rectangle> findIce() {
-		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
-
-	
-		Boolean ignorePixel[][] = new Boolean[_nHeight][_nWidth];
-
-		for (int i = 0; i < _nHeight; i++) {
-			for (int j = 0; j < _nWidth; j++) {
-				ignorePixel[i][j] = false;
-			}
-
+	// as findRegions, tracing the outline of each region kept
+	private List<Polygon> findRegionPolygons(ColourClass colours,
+			FloodFill fill) {
+		if ((_tracer == null) || (_tracer.getWidth() != _nWidth)
+				|| (_tracer.getHeight() != _nHeight))
+			_tracer = new ContourTracer(_nWidth, _nHeight);
+		ArrayList<Polygon> objects = new ArrayList<Polygon>();
+
+		final int seed = colours.getSeed();
+		fill.clear();
+		for (int i = _scanStart; i < _scanEnd; i++) {
+			if ((_scene[i] != seed) || fill.isVisited(i))
+				continue;
+			Rectangle obj = new Rectangle();
+			final int n = fill.fill(_scene, i, colours, false, obj);
+			if (obj.width * obj.height > _regionThreshold
+					&& !RegionOfInterest.HUD.contains(obj))
+				objects.add(_tracer.trace(fill, n));
 		}
 
-		for (int i = 0; i < _nHeight; i++) {
-			for (int j = 0; j < _nWidth; j++) {
-				if ((_scene[i][j] != 311) || ignorePixel[i][j])
-					continue;
-				Rectangle obj = new Rectangle(j, i, 0, 0);
-				LinkedList<Point> l = new LinkedList<Point>();
-				l.add(new Point(j, i));
-				ignorePixel[i][j] = true;
-				while (true) {
-					if (l.isEmpty())
-						break;
-					Point p = l.pop();
-					// check if the colours of the adjacent points of p is
-					// belong to ice
-					if (p.y < _nHeight - 1)
-						if ((_scene[p.y + 1][p.x] == 311
-								|| _scene[p.y + 1][p.x] == 247 || _scene[p.y + 1][p.x] == 183)
-								&& !ignorePixel[p.y + 1][p.x]) {
-							l.add(new Point(p.x, p.y + 1));
-							obj.add(p.x, p.y + 1);
-						}
-					if (p.x < _nWidth - 1)
-						if ((_scene[p.y][p.x + 1] == 311
-								|| _scene[p.y][p.x + 1] == 247 || _scene[p.y][p.x + 1] == 183)
-								&& !ignorePixel[p.y][p.x + 1]) {
-							l.add(new Point(p.x + 1, p.y));
-							obj.add(p.x + 1, p.y);
-						}
-					if (p.y > 0)
-						if ((_scene[p.y - 1][p.x] == 311
-								|| _scene[p.y - 1][p.x] == 247 || _scene[p.y - 1][p.x] == 183)
-								&& !ignorePixel[p.y - 1][p.x]) {
-							l.add(new Point(p.x, p.y - 1));
-							obj.add(p.x, p.y - 1);
-						}
-					if (p.x > 0)
-						if ((_scene[p.y][p.x - 1] == 311
-								|| _scene[p.y][p.x - 1] == 247 || _scene[p.y][p.x - 1] == 183)
-								&& !ignorePixel[p.y][p.x - 1]) {
-							l.add(new Point(p.x - 1, p.y));
-							obj.add(p.x - 1, p.y);
-						}
-
-					if (p.y < _nHeight - 1)
-						ignorePixel[p.y + 1][p.x] = true;
-					if (p.x < _nWidth - 1)
-						ignorePixel[p.y][p.x + 1] = true;
-					if (p.y > 0)
-						ignorePixel[p.y - 1][p.x] = true;
-					if (p.x > 0)
-						ignorePixel[p.y][p.x - 1] = true;
-
-				}
-				if (obj.width * obj.height > _regionThreshold
-						&& !(new Rectangle(0, 0, 190, 55).contains(obj)))
-					objects.add(obj);
-			}
-		}
 		return objects;
 	}
 
-	public List<Rectangle> findWood() {
+	private List<Rectangle> detectTNTs() {
 		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
 
-		
-		// Boolean ignore[] = new Boolean[_nSegments];
-		Boolean ignorePixel[][] = new Boolean[_nHeight][_nWidth];
-
-		for (int i = 0; i < _nHeight; i++) {
-			for (int j = 0; j < _nWidth; j++) {
-				ignorePixel[i][j] = false;
-			}
-
-		}
-
-		for (int i = 0; i < _nHeight; i++) {
-			for (int j = 0; j < _nWidth; j++) {
-				if ((_scene[i][j] != 481) || ignorePixel[i][j])
-					continue;
-				Rectangle obj = new Rectangle(j, i, 0, 0);
-				LinkedList<Point> l = new LinkedList<Point>();
-				List<Point> pointBag = new ArrayList<Point>();
-				l.add(new Point(j, i));
-				pointBag.add(new Point(j, i));
-				ignorePixel[i][j] = true;
-				while (true) {
-					if (l.isEmpty())
-						break;
-					Point p = l.pop();
-					// check if the colours of the adjacent points of p is
-					// belong to wood
-					if (p.y < _nHeight - 1)
-						if ((_scene[p.y + 1][p.x] == 481
-								|| _scene[p.y + 1][p.x] == 408 || _scene[p.y + 1][p.x] == 417)
-								&& !ignorePixel[p.y + 1][p.x]) {
-							l.add(new Point(p.x, p.y + 1));
-							obj.add(p.x, p.y + 1);
-							pointBag.add(new Point(p.x, p.y + 1));
-						}
-					if (p.x < _nWidth - 1)
-						if ((_scene[p.y][p.x + 1] == 481
-								|| _scene[p.y][p.x + 1] == 408 || _scene[p.y][p.x + 1] == 417)
-								&& !ignorePixel[p.y][p.x + 1]) {
-							l.add(new Point(p.x + 1, p.y));
-							obj.add(p.x + 1, p.y);
-							pointBag.add(new Point(p.x + 1, p.y));
-						}
-					if (p.y > 0)
-						if ((_scene[p.y - 1][p.x] == 481
-								|| _scene[p.y - 1][p.x] == 408 || _scene[p.y - 1][p.x] == 417)
-								&& !ignorePixel[p.y - 1][p.x]) {
-							l.add(new Point(p.x, p.y - 1));
-							obj.add(p.x, p.y - 1);
-							pointBag.add(new Point(p.x, p.y - 1));
-						}
-					if (p.x > 0)
-						if ((_scene[p.y][p.x - 1] == 481
-								|| _scene[p.y][p.x - 1] == 408 || _scene[p.y][p.x - 1] == 417)
-								&& !ignorePixel[p.y][p.x - 1]) {
-							l.add(new Point(p.x - 1, p.y));
-							obj.add(p.x - 1, p.y);
-							pointBag.add(new Point(p.x - 1, p.y));
-						}
-
-					if (p.y < _nHeight - 1)
-						ignorePixel[p.y + 1][p.x] = true;
-					if (p.x < _nWidth - 1)
-						ignorePixel[p.y][p.x + 1] = true;
-					if (p.y > 0)
-						ignorePixel[p.y - 1][p.x] = true;
-					if (p.x > 0)
-						ignorePixel[p.y][p.x - 1] = true;
-
-				}
-				if (obj.width * obj.height > _regionThreshold
-						&& !(new Rectangle(0, 0, 190, 55).contains(obj)))
-					objects.add(obj);
-			}
+		final int[] parts = segmentsOf(TNT_COLOURS.getColours());
+		Rectangle[] dilated = new Rectangle[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			dilated[i] = VisionUtils.dialateRectangle(_boxes[parts[i]], 2, 2);
 		}
+		final SegmentGrid candidates = new SegmentGrid(_nWidth, _nHeight,
+				parts, dilated);
+		boolean ignore[] = new boolean[_nSegments];
 
-		return objects;
-	}
-
-	public List<Rectangle> findTNTs() {
-		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
-
-		Boolean ignore[] = new Boolean[_nSegments];
-		Arrays.fill(ignore, false);
-
-		for (int n = 0; n < _nSegments; n++) {
-			if ((_colours[n] != 410) || ignore[n])
+		for (int i = 0; i < parts.length; i++) {
+			final int n = parts[i];
+			if ((_colours[n] != TNT_COLOURS.getSeed()) || ignore[n])
 				continue;
 
 			// dilate bounding box around colour 410
-			Rectangle bounds = VisionUtils.dialateRectangle(_boxes[n], 2, 2);
-			Rectangle obj = _boxes[n];
+			Rectangle bounds = new Rectangle(dilated[i]);
+			Rectangle obj = new Rectangle(_boxes[n]);
 
 			// look for overlapping bounding boxes of colour 410
-			for (int m = n + 1; m < _nSegments; m++) {
-				if (_colours[m] != 410
-						&& _colours[m] != 418)
-					continue;
-				final Rectangle bounds2 = VisionUtils.dialateRectangle(
-						_boxes[m], 2, 2);
-				if (bounds.intersects(bounds2)) {
-					bounds.add(bounds2);
-					obj.add(_boxes[m]);
-					ignore[m] = true;
-				}
+			for (int j = candidates.next(bounds, i); j >= 0; j = candidates
+					.next(bounds, j)) {
+				bounds.add(dilated[j]);
+				obj.add(_boxes[parts[j]]);
+				ignore[parts[j]] = true;
 			}
 
 			obj = VisionUtils.dialateRectangle(obj, 2, 2);
 			obj = VisionUtils.cropBoundingBox(obj, _nWidth, _nHeight);
 			
 			//check secondary colour
-			int[] hist = histogram(obj);
-			if (hist[457] > 0 && hist[511] > 0) {
+			if (countColour(obj, 457) > 0 && countColour(obj, 511) > 0) {
 				objects.add(obj);
 			}
 		}
@@ -771,128 +1406,34 @@ public class Vision {
 
 
 
-	// find trajectory points
+	// detect trajectory points (fitted relative to the given slingshot)
 	@SuppressWarnings("unchecked")
-	public ArrayList<Point> findTrajPoints() {
+	private ArrayList<Point> detectTrajPoints(FloodFill fill, Rectangle sling) {
 		ArrayList<Point> objects = new ArrayList<Point>();
 		ArrayList<Point> objectsRemovedNoise;
 
-		
-		Boolean ignorePixel[][] = new Boolean[_nHeight][_nWidth];
-
-		for (int i = 0; i < _nHeight; i++) {
-			for (int j = 0; j < _nWidth; j++) {
-				ignorePixel[i][j] = false;
-			}
-
-		}
-
-		for (int i = 0; i < _nHeight; i++) {
-			for (int j = 0; j < _nWidth; j++) {
-				if ((_scene[i][j] != 365 && _scene[i][j] != 366 && _scene[i][j] != 438)
-						|| ignorePixel[i][j])
-					continue;
-				Rectangle obj = new Rectangle(j, i, 0, 0);
-				LinkedList<Point> l = new LinkedList<Point>();
-				l.add(new Point(j, i));
-				ignorePixel[i][j] = true;
-				while (true) {
-					if (l.isEmpty())
-						break;
-					Point p = l.pop();
-					// check if the colours of the adjacent points of p is
-					// belong to traj Points
-					if (p.y < _nHeight - 1 && p.x < _nWidth - 1 && p.y > 0
-							&& p.x > 0) {
-						if ((_scene[p.y + 1][p.x] == 365
-								|| _scene[p.y + 1][p.x] == 366 || _scene[p.y + 1][p.x] == 438)
-								&& !ignorePixel[p.y + 1][p.x]) {
-							l.add(new Point(p.x, p.y + 1));
-							obj.add(p.x, p.y + 1);
-						}
-
-						if ((_scene[p.y][p.x + 1] == 365
-								|| _scene[p.y][p.x + 1] == 366 || _scene[p.y][p.x + 1] == 438)
-								&& !ignorePixel[p.y][p.x + 1]) {
-							l.add(new Point(p.x + 1, p.y));
-							obj.add(p.x + 1, p.y);
-						}
-
-						if ((_scene[p.y - 1][p.x] == 365
-								|| _scene[p.y - 1][p.x] == 366 || _scene[p.y - 1][p.x] == 438)
-								&& !ignorePixel[p.y - 1][p.x]) {
-							l.add(new Point(p.x, p.y - 1));
-							obj.add(p.x, p.y - 1);
-						}
-
-						if ((_scene[p.y][p.x - 1] == 365
-								|| _scene[p.y][p.x - 1] == 366 || _scene[p.y][p.x - 1] == 438)
-								&& !ignorePixel[p.y][p.x - 1]) {
-							l.add(new Point(p.x - 1, p.y));
-							obj.add(p.x - 1, p.y);
-						}
-
-						if ((_scene[p.y - 1][p.x - 1] == 365
-								|| _scene[p.y - 1][p.x - 1] == 366 || _scene[p.y - 1][p.x - 1] == 438)
-								&& !ignorePixel[p.y - 1][p.x - 1]) {
-							l.add(new Point(p.x - 1, p.y - 1));
-							obj.add(p.x - 1, p.y - 1);
-						}
-
-						if ((_scene[p.y - 1][p.x + 1] == 365
-								|| _scene[p.y - 1][p.x + 1] == 366 || _scene[p.y - 1][p.x + 1] == 438)
-								&& !ignorePixel[p.y - 1][p.x + 1]) {
-							l.add(new Point(p.x + 1, p.y - 1));
-							obj.add(p.x + 1, p.y - 1);
-						}
-
-						if ((_scene[p.y + 1][p.x + 1] == 365
-								|| _scene[p.y + 1][p.x + 1] == 366 || _scene[p.y + 1][p.x + 1] == 438)
-								&& !ignorePixel[p.y + 1][p.x + 1]) {
-							l.add(new Point(p.x + 1, p.y + 1));
-							obj.add(p.x + 1, p.y + 1);
-						}
-
-						if ((_scene[p.y + 1][p.x - 1] == 365
-								|| _scene[p.y + 1][p.x - 1] == 366 || _scene[p.y + 1][p.x - 1] == 438)
-								&& !ignorePixel[p.y + 1][p.x - 1]) {
-							l.add(new Point(p.x - 1, p.y + 1));
-							obj.add(p.x - 1, p.y + 1);
-						}
-
-					}
-					if (p.y < _nHeight - 1 && p.x < _nWidth - 1 && p.y > 0
-							&& p.x > 0) {
-						ignorePixel[p.y + 1][p.x] = true;
-						ignorePixel[p.y][p.x + 1] = true;
-
-						ignorePixel[p.y - 1][p.x] = true;
-						ignorePixel[p.y][p.x - 1] = true;
-
-						ignorePixel[p.y + 1][p.x + 1] = true;
-						ignorePixel[p.y - 1][p.x + 1] = true;
-						ignorePixel[p.y + 1][p.x - 1] = true;
-						ignorePixel[p.y - 1][p.x - 1] = true;
-					}
-				}
-
-				
-				if (obj.height * obj.width <= 25)
-					objects.add(new Point((int) obj.getCenterX(), (int) obj
-							.getCenterY()));
-			}
+		final boolean[] trajectory = TRAJECTORY_COLOURS.lookupTable();
+		fill.clear();
+		for (int i = _scanStart; i < _scanEnd; i++) {
+			if (!trajectory[_scene[i] + 1] || fill.isVisited(i))
+				continue;
+			// trajectory points are small 8-connected blobs
+			Rectangle obj = new Rectangle();
+			fill.fill(_scene, i, TRAJECTORY_COLOURS, true, obj);
+			if (obj.height * obj.width <= 25)
+				objects.add(new Point((int) obj.getCenterX(), (int) obj
+						.getCenterY()));
 		}
 
 		objectsRemovedNoise = (ArrayList<Point>) objects.clone();
 
 		// remove noise points
-		Matrix W = fitParabola(objects);
+		ParabolaFitter fitter = fitTrajectory(objects, sling);
 		double maxError = 10;
 		Rectangle menu = new Rectangle(0, 0, 205, 60);
 
 		for (Point o : objects) {
-			if (Math.abs(W.get(0, 0) * Math.pow(o.x, 2) + W.get(1, 0) * o.x
-					+ W.get(2, 0) - o.y) > maxError) {
+			if (Math.abs(fitter.evaluate(o.x) - o.y) > maxError) {
 				objectsRemovedNoise.remove(o);
 			}
 
@@ -907,135 +1448,156 @@ public class Vision {
 	//fit parabola using maximum likelihood
 	// vector W = (w0,w1,w2)T , y = w0*x^2 + w1*x + w2
 	public Matrix fitParabola(List<Point> objects) {
-		int trainingSize = 60;
-		double arrayPhiX[][] = new double[trainingSize][3]; // Training set
-		double arrayY[][] = new double[trainingSize][1];
+		return toMatrix(fitTrajectory(objects));
+	}
 
-		Rectangle sling = this.findSlingshot();
+	// fit a parabola to trajectory points as fitParabola does, solving the
+	// normal equations directly (see ParabolaFitter.refit to also drop
+	// the points far from the fit)
+	public ParabolaFitter fitTrajectory(List<Point> objects) {
+		return fitTrajectory(objects, this.findSlingshot());
+	}
 
-		Matrix PhiX, Y;
-		Matrix W = new Matrix(new double[] { 0, 0, 0 }, 3);
-		int i = 0;
+	private ParabolaFitter fitTrajectory(List<Point> objects, Rectangle sling) {
+		int trainingSize = 60;
+		ParabolaFitter fitter = new ParabolaFitter();
 		for (Point p : objects) {
-			
+			if (fitter.size() == trainingSize)
+				break;
+
 			//if slingshot not detected, abandon side noises 
 			if (sling == null) {
 				if (Math.abs(p.x - _nWidth / 2) <= _nWidth / 6
-						&& p.y <= _nHeight / 5 * 3 && i < trainingSize) {
-					arrayPhiX[i][0] = Math.pow(p.x, 2);
-					arrayPhiX[i][1] = p.x;
-					arrayPhiX[i][2] = 1;
-					arrayY[i][0] = p.y;
-					i++;
-				}
+						&& p.y <= _nHeight / 5 * 3)
+					fitter.add(p.x, p.y);
 			} 
 			
 			// if slingshot detected, abandon noises to the left of slingshot
 			else {
 				if (p.x >= sling.getCenterX() + sling.width * 2
 						&& p.x <= sling.getCenterX() + _nWidth / 3
-						&& p.y <= sling.getCenterY() && i < trainingSize) {
-					arrayPhiX[i][0] = Math.pow(p.x, 2);
-					arrayPhiX[i][1] = p.x;
-					arrayPhiX[i][2] = 1;
-					arrayY[i][0] = p.y;
-					i++;
-				}
+						&& p.y <= sling.getCenterY())
+					fitter.add(p.x, p.y);
 			}
 		}
 
-		PhiX = new Matrix(arrayPhiX);
-		Y = new Matrix(arrayY);
-
-		// Maximum likelihood
-		try {
-			W = PhiX.transpose().times(PhiX).inverse().times(PhiX.transpose())
-					.times(Y);
-		} catch (Exception e) {
-			// if Matrix is singular
-			// do nothing
-		}
-		return W;
+		// all parameters are zero if the points do not determine a parabola
+		fitter.solve();
+		return fitter;
 	}
 
-	// train parabola using gradient descent
+	// fit parabola to the centres of objects near the middle of the scene
 	public Matrix trainParabola(ArrayList<Rectangle> objects) {
-
-		double points[][] = new double[objects.size()][2];
-		double alpha = 1e-10;
 		int trainingSize = 100;
-
-		double trainingSet[][] = new double[trainingSize][2];
-		double SquareError;
-		Matrix deltaError;
-
-		int i = 0, j = 0;
+		ParabolaFitter fitter = new ParabolaFitter();
 		for (Rectangle p : objects) {
-			points[i][0] = p.getCenterX();
-			points[i][1] = p.getCenterY();
 			if (Math.abs(p.getCenterX() - _nWidth / 2) <= _nWidth / 4
 					&& Math.abs(p.getCenterY() - _nHeight / 2) <= _nHeight / 5
-					&& j < trainingSize) {
-				trainingSet[j][0] = points[i][0];
-				trainingSet[j][1] = points[i][1];
-				j++;
+					&& fitter.size() < trainingSize) {
+				fitter.add(p.getCenterX(), p.getCenterY());
 			}
-			i++;
 		}
+		fitter.solve();
+		return toMatrix(fitter);
+	}
 
-	
-		Matrix W = new Matrix(new double[] { 0, 0, 0 }, 3);// parabola
-															// parameters
-		
-		Matrix phiX;
-		for (int x = -50; x < 50; x++) {
-			if (x + 50 < trainingSize) {
-				trainingSet[x + 50][0] = x;
-				trainingSet[x + 50][1] = -x * x + 20 * x + 1;
-			}
-		}
-
-		for (int it = 0; it < 50000; it++) {
-			SquareError = 0.;
-			for (int n = 0; n < trainingSize; n++) {
-				if (trainingSet[n][0] > 0) {
-					double xn = trainingSet[n][0];
-					double yn = trainingSet[n][1];
-					phiX = new Matrix(new double[] { Math.pow(xn, 2), xn, 1. },
-							3);
-
-					deltaError = phiX.times((yn - W.transpose().times(phiX)
-							.get(0, 0)));
-					
+	// parameters of a fitted parabola as a column vector
+	private static Matrix toMatrix(ParabolaFitter fitter) {
+		return new Matrix(new double[] { fitter.getA(), fitter.getB(),
+				fitter.getC() }, 3);
+	}
 
-					W = W.plus(deltaError.times(alpha));
-					SquareError += Math.pow(
-							yn - phiX.transpose().times(W).get(0, 0), 2);
+	// find bounding boxes around an arbitrary colour code
+	public List<Rectangle> findColour(int colourCode) {
+		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
 
-				}
-			}
-			if (it % 1000 == 0) {
-				System.out.print(SquareError + "\n");
-				W.print(1, 30);
-			}
+		for (int n : segmentsOf(colourCode)) {
+			objects.add(new Rectangle(_boxes[n]));
 		}
 
-		return W;
+		return objects;
 	}
 
-	// find bounding boxes around an arbitrary colour code
-	public List<Rectangle> findColour(int colourCode) {
+	// find bounding boxes around the segments of an arbitrary colour code
+	// with at least minPixels pixels
+	public List<Rectangle> findColour(int colourCode, int minPixels) {
 		ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
 
-		for (int n = 0; n < _nSegments; n++) {
-			if (_colours[n] == colourCode) {
-				objects.add(_boxes[n]);
-			}
+		for (int n : segmentsOf(colourCode)) {
+			if (_stats.getCount(n) >= minPixels)
+				objects.add(new Rectangle(_boxes[n]));
 		}
 
 		return objects;
 	}
 
+	// ids of the segments of an arbitrary colour code (in increasing order)
+	public int[] findSegments(int colourCode) {
+		return segmentsOf(colourCode);
+	}
+
+	// merge segments of fewer than minPixels pixels (specks of anti-aliasing
+	// and texture noise) into the largest segment next to each, for this
+	// and the following screenshots. specks of the colours the detectors
+	// look for are kept, and nothing is merged into their segments, so the
+	// detections do not change (see VisionBenchmark.benchmarkNoiseSegments).
+	// histogram, query, findColour and findSegments report a merged pixel
+	// with the colour of the segment it was merged into (countColour and the
+	// masks still count the pixel's own colour), and update labels the
+	// whole scene again whenever it changed. 0 (the default) keeps every
+	// segment
+	public void setNoiseThreshold(int minPixels) {
+		if (minPixels == _noiseThreshold)
+			return;
+		_noiseThreshold = minPixels;
+		labelScene();
+		findSegmentProperties();
+		forgetResults();
+		indexColours();
+	}
+
+	public int getNoiseThreshold() {
+		return _noiseThreshold;
+	}
+
+	// number of segments in the scene (after merging noise segments)
+	public int getSegmentCount() {
+		return _nSegments;
+	}
+
+	// number of noise segments merged (see setNoiseThreshold)
+	public int getNoiseSegmentCount() {
+		return _nNoiseSegments;
+	}
+
+	// pixel count, colour, extent and moments of every segment, collected
+	// while labeling (valid until the next call to reset or update)
+	public SegmentStatistics getSegmentStatistics() {
+		return _stats;
+	}
+
+	// run-length encoding of the segments with the colour of each, computed
+	// the first time it is asked for (query and histogram use it once it
+	// is). unlike the other results it may be kept after the next call to
+	// reset or update, as a compact copy of the frame
+	public SegmentRuns getSegmentRuns() {
+		if (_runs == null)
+			_runs = new SegmentRuns(_segments, _colours, _nWidth, _nHeight);
+		return _runs;
+	}
+
+	// bit plane of the pixels of a colour class (pixels outside the region
+	// of interest are never set)
+	public MaskPlane findMask(ColourClass colours) {
+		return MaskPlane.fromScene(_scene, _nWidth, _nHeight, colours);
+	}
+
+	// bit plane of the pixels of an arbitrary colour code
+	public MaskPlane findMask(int colourCode) {
+		return findMask(new ColourClass(Integer.toString(colourCode),
+				colourCode));
+	}
+
 	// query the colour at given pixel
 	public Integer query(Point p) {
 		if ((p.x >= _nWidth) || (p.y >= _nHeight)) {
@@ -1044,40 +1606,235 @@ public class Vision {
 			return null;
 		}
 
-		return _colours[_segments[p.y][p.x]];
+		final int n = (_runs == null) ? _segments[p.y * _nWidth + p.x]
+				: _runs.getLabel(p.x, p.y);
+		return (n < 0) ? null : Integer.valueOf(_colours[n]);
 	}
 
 	// query colours within given bounding box
 	public Set<Integer> query(Rectangle r) {
 		Set<Integer> s = new HashSet<Integer>();
-		for (int n = 0; n < _nSegments; n++) {
+		if (_allBoxes == null) {
+			int[] ids = new int[_nSegments];
+			for (int n = 0; n < _nSegments; n++) {
+				ids[n] = n;
+			}
+			_allBoxes = new SegmentGrid(_nWidth, _nHeight, ids,
+					Arrays.copyOf(_boxes, _nSegments));
+		}
+		for (int n : _allBoxes.intersecting(r)) {
 			if (r.contains(_boxes[n])) {
-				s.add(_colours[n]);
+				s.add((int) _colours[n]);
 			}
 		}
 		return s;
 	}
 
-	// compute a histogram of colours within a given bounding box
+	// ids of all segments with one of the given colours, in increasing order
+	private int[] segmentsOf(int... colours) {
+		int n = 0;
+		for (int c : colours) {
+			n += _colourStart[c + 1] - _colourStart[c];
+		}
+
+		int[] ids = new int[n];
+		n = 0;
+		for (int c : colours) {
+			final int len = _colourStart[c + 1] - _colourStart[c];
+			System.arraycopy(_colourSegments, _colourStart[c], ids, n, len);
+			n += len;
+		}
+		if (colours.length > 1)
+			Arrays.sort(ids);
+		return ids;
+	}
+
+	// spatial index over the bounding boxes of segments of a colour class
+	private SegmentGrid boxGrid(ColourClass colours) {
+		final int[] ids = segmentsOf(colours.getColours());
+		Rectangle[] boxes = new Rectangle[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			boxes[i] = _boxes[ids[i]];
+		}
+		return new SegmentGrid(_nWidth, _nHeight, ids, boxes);
+	}
+
+	// compute a histogram of colours within a given bounding box (a run at
+	// a time if the segment runs have been computed; pixels outside the
+	// region of interest have no segment)
 	public int[] histogram(Rectangle r) {
+		if (_runs != null)
+			return _runs.histogram(r);
+
 		int[] h = new int[512];
-		Arrays.fill(h, 0);
+		final int x0 = Math.max(0, r.x);
+		final int x1 = Math.min(_nWidth, r.x + r.width);
+		final int y0 = Math.max(0, r.y);
+		final int y1 = Math.min(_nHeight, r.y + r.height);
+		for (int y = y0; y < y1; y++) {
+			final int i0 = y * _nWidth;
+			for (int i = i0 + x0; i < i0 + x1; i++) {
+				final int n = _segments[i];
+				if (n >= 0)
+					h[_colours[n]]++;
+			}
+		}
+		return h;
+	}
+
+	// count the pixels of a colour within a given bounding box (the same as
+	// histogram(r)[colourCode]). once a colour has been counted over as many
+	// pixels as there are in the scene an integral image of it is computed,
+	// after which it is counted in constant time
+	public int countColour(Rectangle r, int colourCode) {
+		final int x0 = Math.max(0, r.x);
+		final int x1 = Math.min(_nWidth, r.x + r.width);
+		final int y0 = Math.max(0, r.y);
+		final int y1 = Math.min(_nHeight, r.y + r.height);
+		if ((x0 >= x1) || (y0 >= y1))
+			return 0;
+
+		final SummedAreaTable table = colourCounts(colourCode, (x1 - x0)
+				* (y1 - y0));
+		if (table != null)
+			return table.count(r);
+
+		int n = 0;
+		for (int y = y0; y < y1; y++) {
+			final int i0 = y * _nWidth;
+			for (int i = i0 + x0; i < i0 + x1; i++) {
+				if (_scene[i] == colourCode)
+					n++;
+			}
+		}
+		return n;
+	}
 
-		for (int y = r.y; y < r.y + r.height; y++) {
-			if ((y < 0) || (y >= _nHeight))
+	// integral image of a colour for the current screenshot, or null while
+	// counting the pixels directly is still cheaper than computing it
+	private synchronized SummedAreaTable colourCounts(int colourCode,
+			int nPixels) {
+		if (_colourCounts == null) {
+			_colourCounts = new SummedAreaTable[512];
+			_colourCounted = new boolean[512];
+			_colourScanned = new int[512];
+		}
+		if (_colourCounted[colourCode])
+			return _colourCounts[colourCode];
+		_colourScanned[colourCode] += nPixels;
+		if (_colourScanned[colourCode] < _nWidth * _nHeight)
+			return null;
+
+		if (_colourCounts[colourCode] == null)
+			_colourCounts[colourCode] = new SummedAreaTable(_nWidth, _nHeight);
+		_colourCounts[colourCode].compute(_scene, colourCode);
+		_colourCounted[colourCode] = true;
+		return _colourCounts[colourCode];
+	}
+
+	// quantize an RGB colour to 3-bit colour
+	static short quantize(int colour) {
+		return (short) (((colour & 0x00e00000) >> 15)
+				| ((colour & 0x0000e000) >> 10) | ((colour & 0x000000e0) >> 5));
+	}
+
+	// quantize rows y0 to y1 (exclusive) of a screenshot to 3-bit colour
+	// (-1 outside the region of interest), keeping the colours for update
+	// when incremental processing is used
+	private void quantize(PixelReader pixels, int y0, int y1) {
+		final int[] row = new int[_nWidth];
+		for (int y = y0; y < y1; y++) {
+			final int i0 = y * _nWidth;
+			// pixels outside the region of interest are not read
+			if ((i0 + _nWidth <= _scanStart) || (i0 >= _scanEnd)) {
+				Arrays.fill(_scene, i0, i0 + _nWidth, (short) -1);
 				continue;
-			for (int x = r.x; x < r.x + r.width; x++) {
-				if ((x < 0) || (x >= _nWidth))
-					continue;
-				h[_colours[_segments[y][x]]] += 1;
+			}
+			pixels.readRow(y, row);
+			if (_pixels != null)
+				System.arraycopy(row, 0, _pixels, i0, _nWidth);
+			if (_included == null) {
+				PixelKernels.quantizeRow(row, _scene, i0, _nWidth);
+			} else {
+				for (int x = 0; x < _nWidth; x++) {
+					_scene[i0 + x] = _included[i0 + x] ? quantize(row[x]) : -1;
+				}
 			}
 		}
+	}
 
-		return h;
+	// quantize and label the screenshot in horizontal stripes concurrently;
+	// the seams between stripes are merged and the labels resolved in this
+	// task. returns the number of segments
+	private int labelStriped(final PixelReader pixels) {
+		final int nStripes = Math.min(_nHeight, 2 * _pool.getParallelism());
+		final int[] rows = new int[nStripes + 1];
+		for (int s = 0; s <= nStripes; s++) {
+			rows[s] = s * _nHeight / nStripes;
+		}
+		final int[] starts = new int[nStripes];
+		final int[] counts = new int[nStripes];
+
+		// every stripe collects the statistics of its provisional labels
+		if ((_stripeStats == null) || (_stripeStats.length < nStripes)) {
+			_stripeStats = new SegmentStatistics[nStripes];
+			for (int s = 0; s < nStripes; s++) {
+				_stripeStats[s] = new SegmentStatistics(_nWidth);
+			}
+		}
+
+		return _pool.invoke(new RecursiveTask<Integer>() {
+			@Override
+			protected Integer compute() {
+				List<RecursiveAction> stripes = new ArrayList<RecursiveAction>();
+				for (int s = 0; s < nStripes; s++) {
+					final int k = s;
+					stripes.add(new RecursiveAction() {
+						@Override
+						protected void compute() {
+							quantize(pixels, rows[k], rows[k + 1]);
+							starts[k] = rows[k] * _nWidth;
+							_stripeStats[k].clear(0);
+							counts[k] = VisionUtils.labelStripe(_scene,
+									_nWidth, rows[k], rows[k + 1], _segments,
+									_work, _rank, _stripeStats[k]);
+						}
+					});
+				}
+				invokeAll(stripes);
+
+				for (int s = 1; s < nStripes; s++) {
+					VisionUtils.mergeStripeSeam(_scene, _nWidth, rows[s],
+							_segments, _work, _rank);
+				}
+				final int n = VisionUtils.resolveLabels(_work, starts, counts);
+				_stats.clear(n);
+				for (int s = 0; s < nStripes; s++) {
+					VisionUtils.resolveStatistics(_work, starts[s],
+							_stripeStats[s], _stats);
+				}
+
+				stripes.clear();
+				for (int s = 0; s < nStripes; s++) {
+					final int k = s;
+					stripes.add(new RecursiveAction() {
+						@Override
+						protected void compute() {
+							VisionUtils.relabelStripe(_nWidth, rows[k],
+									rows[k + 1], _segments, _work);
+						}
+					});
+				}
+				invokeAll(stripes);
+				return n;
+			}
+		});
 	}
 
 	// perform preprocessing of a new screenshot
 	private void processScreenShot(BufferedImage screenshot) {
+		_incremental = false;
+
 		// extract width and height
 		_nHeight = screenshot.getHeight();
 		_nWidth = screenshot.getWidth();
@@ -1086,31 +1843,216 @@ public class Vision {
 			System.exit(1);
 		}
 
-		// quantize to 3-bit colour
-		_scene = new int[_nHeight][_nWidth];
-		for (int y = 0; y < _nHeight; y++) {
-			for (int x = 0; x < _nWidth; x++) {
-				final int colour = screenshot.getRGB(x, y);
-				_scene[y][x] = ((colour & 0x00e00000) >> 15)
-						| ((colour & 0x0000e000) >> 10)
-						| ((colour & 0x000000e0) >> 5);
+		// (re)allocate pixel buffers only when the frame size changes
+		final int nPixels = _nHeight * _nWidth;
+		if ((_scene == null) || (_scene.length != nPixels)) {
+			_scene = new short[nPixels];
+			_segments = new int[nPixels];
+			_work = new int[nPixels];
+			_rank = new byte[nPixels];
+			_fill = new FloodFill(_nWidth, _nHeight);
+			_stats = new SegmentStatistics(_nWidth);
+			_spareStats = null;
+			_stripeStats = null;
+			_colourCounts = null;
+		}
+		if (_roi == null) {
+			_scanStart = 0;
+			_scanEnd = nPixels;
+		} else if ((_included == null) || (_included.length != nPixels)) {
+			_included = _roi.mask(_nWidth, _nHeight);
+			_scanStart = nPixels;
+			_scanEnd = 0;
+			for (int i = 0; i < nPixels; i++) {
+				if (_included[i]) {
+					_scanStart = Math.min(_scanStart, i);
+					_scanEnd = i + 1;
+				}
 			}
 		}
 
-		// find connected components
-		_segments = VisionUtils.findConnectedComponents(_scene);
-		_nSegments = VisionUtils.countComponents(_segments);
+		// quantize to 3-bit colour and find connected components
+		final PixelReader pixels = new PixelReader(screenshot);
+		if (_pool != null) {
+			_nSegments = labelStriped(pixels);
+			mergeNoiseSegments();
+		} else {
+			quantize(pixels, 0, _nHeight);
+			labelScene();
+		}
 		// System.out.println("...found " + _nSegments + " components");
 
-		_colours = new int[_nSegments];
-		for (int y = 0; y < _nHeight; y++) {
-			for (int x = 0; x < _nWidth; x++) {
-				_colours[_segments[y][x]] = _scene[y][x];
+		findSegmentProperties();
+		forgetResults();
+		indexColours();
+	}
+
+	// find the connected components of the quantized scene (merging noise
+	// segments)
+	private void labelScene() {
+		if (_labeling == Labeling.BREADTH_FIRST) {
+			_nSegments = VisionUtils.findConnectedComponents(_scene, _nWidth,
+					_nHeight, _segments, _work, _stats);
+		} else {
+			_nSegments = VisionUtils.findConnectedComponentsUnionFind(_scene,
+					_nWidth, _nHeight, _segments, _work, _rank, _stats);
+		}
+		mergeNoiseSegments();
+	}
+
+	// merge every segment of fewer than _noiseThreshold pixels into the
+	// largest segment next to it (8-connected, ties going to the lower id),
+	// unless that one is not larger itself; a speck next to specks only may
+	// so end up in a segment further away. segments of SEGMENT_COLOURS take
+	// no part, so the detectors see the same segments. segments keep their
+	// order, and a merged segment keeps the colour of the one it was merged
+	// into
+	private void mergeNoiseSegments() {
+		_nNoiseSegments = 0;
+		if (_noiseThreshold <= 0)
+			return;
+
+		final int nSegments = _nSegments;
+		int[] target = new int[nSegments];
+		final Rectangle box = new Rectangle();
+		for (int n = 0; n < nSegments; n++) {
+			target[n] = n;
+			if ((_stats.getCount(n) >= _noiseThreshold)
+					|| SEGMENT_COLOURS.accept(_stats.getColour(n)))
+				continue;
+			// the box can be a pixel short of the extent (see
+			// SegmentStatistics.getBoundingBox)
+			_stats.getBoundingBox(n, box);
+			final int y1 = Math.min(_nHeight - 1, box.y + box.height);
+			final int x1 = Math.min(_nWidth - 1, box.x + box.width);
+			int best = -1;
+			for (int y = box.y; y <= y1; y++) {
+				for (int x = box.x; x <= x1; x++) {
+					if (_segments[y * _nWidth + x] != n)
+						continue;
+					for (int dy = Math.max(0, y - 1); dy <= Math.min(
+							_nHeight - 1, y + 1); dy++) {
+						for (int dx = Math.max(0, x - 1); dx <= Math.min(
+								_nWidth - 1, x + 1); dx++) {
+							final int m = _segments[dy * _nWidth + dx];
+							if ((m >= 0) && (m != n)
+									&& ((best < 0) || isLarger(m, best))
+									&& !SEGMENT_COLOURS.accept(_stats
+											.getColour(m)))
+								best = m;
+						}
+					}
+				}
 			}
+			if ((best >= 0) && isLarger(best, n))
+				target[n] = best;
+		}
+
+		// every chain of targets ends in a segment kept, as targets are
+		// larger; number the segments kept in order
+		int[] id = new int[nSegments];
+		int nKept = 0;
+		for (int n = 0; n < nSegments; n++) {
+			if (target[n] == n)
+				id[n] = nKept++;
+		}
+		SegmentStatistics stats = (_spareStats == null) ? new SegmentStatistics(
+				_nWidth) : _spareStats;
+		stats.clear(nKept);
+		for (int n = 0; n < nSegments; n++) {
+			if (target[n] == n)
+				stats.set(id[n], _stats, n);
+		}
+		for (int n = 0; n < nSegments; n++) {
+			int t = target[n];
+			while (target[t] != t) {
+				t = target[t];
+			}
+			target[n] = t;
+			id[n] = id[t];
+			if (t != n)
+				stats.add(id[n], _stats, n);
+		}
+		for (int i = _scanStart; i < _scanEnd; i++) {
+			if (_segments[i] >= 0)
+				_segments[i] = id[_segments[i]];
+		}
+
+		_spareStats = _stats;
+		_stats = stats;
+		_nNoiseSegments = nSegments - nKept;
+		_nSegments = nKept;
+	}
+
+	// whether segment m is larger than segment n
+	private boolean isLarger(int m, int n) {
+		final int cm = _stats.getCount(m);
+		final int cn = _stats.getCount(n);
+		return (cm > cn) || ((cm == cn) && (m < n));
+	}
+
+	// take the colour and bounding box of every segment from the statistics
+	// collected by the labeling (reusing the boxes of the previous frame)
+	private void findSegmentProperties() {
+		if ((_colours == null) || (_colours.length < _nSegments)) {
+			_colours = new short[_nSegments];
+			_boxes = (_boxes == null) ? new Rectangle[_nSegments] : Arrays
+					.copyOf(_boxes, _nSegments);
+		}
+		for (int n = 0; n < _nSegments; n++) {
+			_colours[n] = _stats.getColour(n);
+			if (_boxes[n] == null)
+				_boxes[n] = new Rectangle();
+			_stats.getBoundingBox(n, _boxes[n]);
+		}
+	}
+
+	// forget results of the previous screenshot
+	private void forgetResults() {
+		_allBoxes = null;
+		if (_colourCounted != null) {
+			Arrays.fill(_colourCounted, false);
+			Arrays.fill(_colourScanned, 0);
 		}
+		_slingshot = null;
+		_slingshotDetected = false;
+		_pigs = null;
+		_redBirds = null;
+		_blueBirds = null;
+		_yellowBirds = null;
+		_whiteBirds = null;
+		_blackBirds = null;
+		_tnts = null;
+		_stones = null;
+		_ice = null;
+		_wood = null;
+		_woodPolygons = null;
+		_trajPoints = null;
+		_runs = null;
+	}
 
-		// find bounding boxes and segment colours
-		_boxes = VisionUtils.findBoundingBoxes(_segments);
+	// index segments by colour (in increasing order within a colour)
+	private void indexColours() {
+		if (_colourStart == null) {
+			_colourStart = new int[513];
+		}
+		if ((_colourSegments == null) || (_colourSegments.length < _nSegments)) {
+			_colourSegments = new int[_nSegments];
+		}
+		Arrays.fill(_colourStart, 0);
+		for (int n = 0; n < _nSegments; n++) {
+			_colourStart[_colours[n] + 1]++;
+		}
+		for (int c = 0; c < 512; c++) {
+			_colourStart[c + 1] += _colourStart[c];
+		}
+		for (int n = 0; n < _nSegments; n++) {
+			_colourSegments[_colourStart[_colours[n]]++] = n;
+		}
+		for (int c = 511; c >= 0; c--) {
+			_colourStart[c + 1] = _colourStart[c];
+		}
+		_colourStart[0] = 0;
 	}
 
 }
@@ -0,0 +1,1549 @@
+/*****************************************************************************
+ ** ANGRYBIRDS AI AGENT FRAMEWORK
+ ** Copyright (c) 2013,XiaoYu (Gary) Ge, Stephen Gould,Jochen Renz
+ **  Sahan Abeyasinghe, Jim Keys, Kar-Wai Lim, Zain Mubashir,  Andrew Wang, Peng Zhang
+ ** All rights reserved.
+ **This work is licensed under the Creative Commons Attribution-NonCommercial-ShareAlike 3.0 Unported License.
+ **To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-sa/3.0/
+ *or send a letter to Creative Commons, 444 Castro Street, Suite 900, Mountain View, California, 94041, USA.
+ *****************************************************************************/
+
+package ab.vision;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import Jama.Matrix;
+import ab.planner.TrajectoryPlanner;
+
+/* VisionBenchmark -------------------------------------------------------- */
+
+// times the vision pipeline on a directory of recorded screenshots
+public class VisionBenchmark {
+
+	// loads all png images from a directory (or a single image)
+	static public List<BufferedImage> loadImages(String path) {
+		File[] files = null;
+		if ((new File(path)).isDirectory()) {
+			files = new File(path).listFiles(new FilenameFilter() {
+				@Override
+				public boolean accept(File directory, String fileName) {
+					return fileName.endsWith(".png");
+				}
+			});
+		} else {
+			files = new File[1];
+			files[0] = new File(path);
+		}
+		Arrays.sort(files);
+
+		List<BufferedImage> images = new ArrayList<BufferedImage>();
+		for (File filename : files) {
+			try {
+				images.add(ImageIO.read(filename));
+			} catch (IOException e) {
+				System.err.println("ERROR: could not load image " + filename);
+			}
+		}
+		return images;
+	}
+
+	// quantizes a screenshot to 3-bit colour in row-major order
+	static public short[] quantize(BufferedImage screenshot) {
+		final int nHeight = screenshot.getHeight();
+		final int nWidth = screenshot.getWidth();
+		short[] scene = new short[nHeight * nWidth];
+		final PixelReader pixels = new PixelReader(screenshot);
+		final int[] row = new int[nWidth];
+		for (int y = 0, i = 0; y < nHeight; y++) {
+			pixels.readRow(y, row);
+			for (int x = 0; x < nWidth; x++, i++) {
+				final int colour = row[x];
+				scene[i] = (short) (((colour & 0x00e00000) >> 15)
+						| ((colour & 0x0000e000) >> 10)
+						| ((colour & 0x000000e0) >> 5));
+			}
+		}
+		return scene;
+	}
+
+	// compares breadth first and union-find connected components labeling,
+	// and finding segment colours and bounding boxes in separate passes
+	// after labeling with collecting segment statistics while labeling
+	static public void benchmarkLabeling(List<BufferedImage> images,
+			int repeats) {
+		long bfsTime = 0;
+		long ufTime = 0;
+		long passesTime = 0;
+		long statsTime = 0;
+		int nSegments = 0;
+		int nMismatches = 0;
+		for (BufferedImage screenshot : images) {
+			final int nWidth = screenshot.getWidth();
+			final int nHeight = screenshot.getHeight();
+			final short[] scene = quantize(screenshot);
+			final int[] bfs = new int[scene.length];
+			final int[] uf = new int[scene.length];
+			final int[] work = new int[scene.length];
+			final byte[] rank = new byte[scene.length];
+			final short[] colours = new short[scene.length];
+			final Rectangle[] boxes = new Rectangle[scene.length];
+			final SegmentStatistics stats = new SegmentStatistics(nWidth);
+
+			int nBfs = 0;
+			int nUf = 0;
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				nBfs = VisionUtils.findConnectedComponents(scene, nWidth,
+						nHeight, bfs, work);
+				bfsTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				nUf = VisionUtils.findConnectedComponentsUnionFind(scene,
+						nWidth, nHeight, uf, work, rank);
+				ufTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				VisionUtils.findConnectedComponentsUnionFind(scene, nWidth,
+						nHeight, uf, work, rank);
+				for (int i = 0; i < scene.length; i++) {
+					if (uf[i] >= 0)
+						colours[uf[i]] = scene[i];
+				}
+				findBoundingBoxes(uf, nWidth, nHeight, nUf, boxes);
+				passesTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				VisionUtils.findConnectedComponentsUnionFind(scene, nWidth,
+						nHeight, uf, work, rank, stats);
+				statsTime += System.nanoTime() - start;
+			}
+
+			nSegments += nBfs;
+			if ((nBfs != nUf) || !Arrays.equals(bfs, uf))
+				nMismatches++;
+		}
+
+		final int nRuns = images.size() * repeats;
+		System.out.println("labeling: " + images.size() + " frames, "
+				+ nSegments / Math.max(1, images.size())
+				+ " segments per frame, " + nMismatches + " mismatches");
+		System.out.printf("  breadth first %8.3f ms/frame%n", bfsTime / 1e6
+				/ nRuns);
+		System.out.printf("  union-find    %8.3f ms/frame (%.2fx)%n", ufTime
+				/ 1e6 / nRuns, (double) bfsTime / ufTime);
+		System.out.printf("  + passes      %8.3f ms/frame%n", passesTime
+				/ 1e6 / nRuns);
+		System.out.printf("  + statistics  %8.3f ms/frame (%.2fx)%n",
+				statsTime / 1e6 / nRuns, (double) passesTime / statsTime);
+	}
+
+	// fills boxes with the bounding boxes of the nComponents components of
+	// row-major labels, in a separate pass (as Vision did before collecting
+	// segment statistics while labeling)
+	static private void findBoundingBoxes(int[] labels, int width,
+			int height, int nComponents, Rectangle[] boxes) {
+		Arrays.fill(boxes, 0, nComponents, null);
+		for (int y = 0, i = 0; y < height; y++) {
+			for (int x = 0; x < width; x++, i++) {
+				final int n = labels[i];
+				if (n < 0)
+					continue;
+				if (boxes[n] == null) {
+					boxes[n] = new Rectangle(x, y, 1, 1);
+				} else {
+					boxes[n].add(x, y);
+				}
+			}
+		}
+	}
+
+	// names of the detectors timed by benchmarkDetectors
+	static private final String[] DETECTORS = { "findSlingshot", "findPigs",
+			"findRedBirds", "findBlueBirds", "findYellowBirds",
+			"findWhiteBirds", "findBlackBirds", "findTNTs", "findStones",
+			"findIce", "findWood", "findTrajPoints" };
+
+	// runs the i-th detector of DETECTORS and returns the number of objects
+	static private int detect(Vision vision, int i) {
+		switch (i) {
+		case 0:
+			return (vision.findSlingshot() == null) ? 0 : 1;
+		case 1:
+			return vision.findPigs().size();
+		case 2:
+			return vision.findRedBirds().size();
+		case 3:
+			return vision.findBlueBirds().size();
+		case 4:
+			return vision.findYellowBirds().size();
+		case 5:
+			return vision.findWhiteBirds().size();
+		case 6:
+			return vision.findBlackBirds().size();
+		case 7:
+			return vision.findTNTs().size();
+		case 8:
+			return vision.findStones().size();
+		case 9:
+			return vision.findIce().size();
+		case 10:
+			return vision.findWood().size();
+		default:
+			return vision.findTrajPoints().size();
+		}
+	}
+
+	// times the construction of a Vision object and each of its detectors
+	static public void benchmarkDetectors(List<BufferedImage> images,
+			int repeats) {
+		long constructTime = 0;
+		long[] detectTime = new long[DETECTORS.length];
+		int[] nObjects = new int[DETECTORS.length];
+		for (BufferedImage screenshot : images) {
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				Vision vision = new Vision(screenshot);
+				constructTime += System.nanoTime() - start;
+
+				for (int i = 0; i < DETECTORS.length; i++) {
+					start = System.nanoTime();
+					nObjects[i] += detect(vision, i);
+					detectTime[i] += System.nanoTime() - start;
+				}
+			}
+		}
+
+		final int nRuns = images.size() * repeats;
+		System.out.println("detectors: " + images.size() + " frames");
+		System.out.printf("  %-16s %8.3f ms/frame%n", "new Vision",
+				constructTime / 1e6 / nRuns);
+		for (int i = 0; i < DETECTORS.length; i++) {
+			System.out.printf("  %-16s %8.3f ms/frame %6.1f objects%n",
+					DETECTORS[i], detectTime[i] / 1e6 / nRuns,
+					(double) nObjects[i] / nRuns);
+		}
+	}
+
+	// times detectAll sequentially and in fork/join pools of increasing size
+	static public void benchmarkParallelDetection(List<BufferedImage> images,
+			int repeats, int maxThreads) {
+		List<Vision> visions = new ArrayList<Vision>();
+		for (BufferedImage screenshot : images) {
+			visions.add(new Vision(screenshot));
+		}
+
+		long sequentialTime = 0;
+		for (int r = 0; r < repeats; r++) {
+			for (int i = 0; i < images.size(); i++) {
+				visions.get(i).reset(images.get(i));
+				long start = System.nanoTime();
+				visions.get(i).detectAll();
+				sequentialTime += System.nanoTime() - start;
+			}
+		}
+
+		final int nRuns = images.size() * repeats;
+		System.out.println("parallel detection: " + images.size()
+				+ " frames, " + Runtime.getRuntime().availableProcessors()
+				+ " processors");
+		System.out.printf("  %-12s %8.3f ms/frame%n", "sequential",
+				sequentialTime / 1e6 / nRuns);
+		for (int nThreads = 1; nThreads <= maxThreads; nThreads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(nThreads);
+			long parallelTime = 0;
+			for (int r = 0; r < repeats; r++) {
+				for (int i = 0; i < images.size(); i++) {
+					visions.get(i).reset(images.get(i));
+					long start = System.nanoTime();
+					visions.get(i).detectAll(pool);
+					parallelTime += System.nanoTime() - start;
+				}
+			}
+			pool.shutdown();
+			System.out.printf("  %2d threads   %8.3f ms/frame (%.2fx)%n",
+					nThreads, parallelTime / 1e6 / nRuns,
+					(double) sequentialTime / parallelTime);
+		}
+	}
+
+	// times the preprocessing of a screenshot (quantization and labeling)
+	// sequentially and in stripes in fork/join pools of increasing size
+	static public void benchmarkStripedPreprocessing(
+			List<BufferedImage> images, int repeats, int maxThreads) {
+		Vision sequential = new Vision(images.get(0));
+		long sequentialTime = 0;
+		for (int r = 0; r < repeats; r++) {
+			for (BufferedImage screenshot : images) {
+				long start = System.nanoTime();
+				sequential.reset(screenshot);
+				sequentialTime += System.nanoTime() - start;
+			}
+		}
+
+		final int nRuns = images.size() * repeats;
+		System.out.println("striped preprocessing: " + images.size()
+				+ " frames, " + Runtime.getRuntime().availableProcessors()
+				+ " processors");
+		System.out.printf("  %-12s %8.3f ms/frame%n", "sequential",
+				sequentialTime / 1e6 / nRuns);
+		for (int nThreads = 1; nThreads <= maxThreads; nThreads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(nThreads);
+			Vision striped = new Vision(images.get(0), pool);
+			long stripedTime = 0;
+			for (int r = 0; r < repeats; r++) {
+				for (BufferedImage screenshot : images) {
+					long start = System.nanoTime();
+					striped.reset(screenshot);
+					stripedTime += System.nanoTime() - start;
+				}
+			}
+			pool.shutdown();
+			System.out.printf("  %2d threads   %8.3f ms/frame (%.2fx)%n",
+					nThreads, stripedTime / 1e6 / nRuns,
+					(double) sequentialTime / stripedTime);
+		}
+	}
+
+	// check if two snapshots hold the same objects
+	static public boolean sameScene(SceneSnapshot a, SceneSnapshot b) {
+		return ((a.getSlingshot() == null) ? (b.getSlingshot() == null) : a
+				.getSlingshot().equals(b.getSlingshot()))
+				&& a.getPigs().equals(b.getPigs())
+				&& a.getRedBirds().equals(b.getRedBirds())
+				&& a.getBlueBirds().equals(b.getBlueBirds())
+				&& a.getYellowBirds().equals(b.getYellowBirds())
+				&& a.getWhiteBirds().equals(b.getWhiteBirds())
+				&& a.getBlackBirds().equals(b.getBlackBirds())
+				&& a.getTNTs().equals(b.getTNTs())
+				&& a.getStones().equals(b.getStones())
+				&& a.getIce().equals(b.getIce())
+				&& a.getWood().equals(b.getWood())
+				&& a.getTrajPoints().equals(b.getTrajPoints());
+	}
+
+	// times Vision.update against reset on frames of a small object flying
+	// over each screenshot (as after a shot)
+	static public void benchmarkIncremental(List<BufferedImage> images,
+			int repeats) {
+		final int nFrames = 10;
+		long updateTime = 0;
+		long resetTime = 0;
+		int nMismatches = 0;
+		Vision incremental = new Vision(images.get(0));
+		Vision full = new Vision(images.get(0));
+		for (BufferedImage screenshot : images) {
+			List<BufferedImage> frames = new ArrayList<BufferedImage>();
+			for (int f = 0; f < nFrames; f++) {
+				BufferedImage frame = new BufferedImage(screenshot.getWidth(),
+						screenshot.getHeight(), BufferedImage.TYPE_INT_RGB);
+				Graphics g = frame.getGraphics();
+				g.drawImage(screenshot, 0, 0, null);
+				g.setColor(new Color(200, 30, 30));
+				g.fillOval(150 + 60 * f, 300 - 30 * f + 3 * f * f, 14, 14);
+				g.dispose();
+				frames.add(frame);
+			}
+
+			// the first frame of a new scene is processed in full
+			incremental.update(frames.get(0));
+			for (int r = 0; r < repeats; r++) {
+				for (int f = 1; f < nFrames; f++) {
+					long start = System.nanoTime();
+					incremental.update(frames.get(f));
+					updateTime += System.nanoTime() - start;
+
+					start = System.nanoTime();
+					full.reset(frames.get(f));
+					resetTime += System.nanoTime() - start;
+
+					if (!sameScene(incremental.detectAll(), full.detectAll()))
+						nMismatches++;
+				}
+				incremental.update(frames.get(0));
+			}
+		}
+
+		final int nRuns = images.size() * repeats * (nFrames - 1);
+		System.out.println("incremental: " + images.size() + " scenes, "
+				+ (nFrames - 1) + " frames each, " + nMismatches
+				+ " mismatches");
+		System.out.printf("  reset        %8.3f ms/frame%n", resetTime / 1e6
+				/ nRuns);
+		System.out.printf("  update       %8.3f ms/frame (%.2fx)%n",
+				updateTime / 1e6 / nRuns, (double) resetTime / updateTime);
+	}
+
+	// compares processing whole screenshots with processing only the default
+	// region of interest of each level (see Vision.defaultRegionOfInterest).
+	// objects cut by the border of the region may be reported differently
+	static public void benchmarkRegionOfInterest(List<BufferedImage> images,
+			int repeats) {
+		long fullTime = 0;
+		long roiTime = 0;
+		int nCovered = 0;
+		int nDifferent = 0;
+		for (BufferedImage screenshot : images) {
+			final RegionOfInterest roi = new Vision(screenshot)
+					.defaultRegionOfInterest();
+			final boolean[] mask = roi.mask(screenshot.getWidth(),
+					screenshot.getHeight());
+			for (boolean b : mask) {
+				if (b)
+					nCovered++;
+			}
+
+			SceneSnapshot full = null;
+			SceneSnapshot region = null;
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				full = new Vision(screenshot).detectAll();
+				fullTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				region = new Vision(screenshot, roi).detectAll();
+				roiTime += System.nanoTime() - start;
+			}
+			if (!sameScene(full, region))
+				nDifferent++;
+		}
+
+		final int nRuns = images.size() * repeats;
+		final long nPixels = (long) images.get(0).getWidth()
+				* images.get(0).getHeight() * images.size();
+		System.out.printf("region of interest: %d frames, %.1f%% of pixels,"
+				+ " %d frames with different results%n", images.size(),
+				100.0 * nCovered / nPixels, nDifferent);
+		System.out.printf("  whole frame  %8.3f ms/frame%n", fullTime / 1e6
+				/ nRuns);
+		System.out.printf("  region       %8.3f ms/frame (%.2fx)%n",
+				roiTime / 1e6 / nRuns, (double) fullTime / roiTime);
+	}
+
+	// dilates and erodes a mask of the distance map kind (thresholding
+	// VisionUtils.computeDistanceMap), the reference for the bit planes
+	static private int[][] distanceMorphology(int[][] image, int k,
+			boolean erode) {
+		if (erode)
+			VisionUtils.invertRegions(image);
+		VisionUtils.computeDistanceMap(image);
+		for (int[] row : image) {
+			for (int x = 0; x < row.length; x++) {
+				row[x] = ((row[x] <= k) != erode) ? 1 : 0;
+			}
+		}
+		return image;
+	}
+
+	// compares dilating, eroding and counting the wood pixels of each frame
+	// as an int[][] image (through distance maps) and as a bit plane
+	static public void benchmarkMasks(List<BufferedImage> images, int repeats,
+			int k) {
+		final ColourClass wood = new ColourClass("wood", 481, 408, 417);
+		long arrayTime = 0;
+		long planeTime = 0;
+		int nMismatches = 0;
+		for (BufferedImage screenshot : images) {
+			final int nWidth = screenshot.getWidth();
+			final int nHeight = screenshot.getHeight();
+			final short[] scene = quantize(screenshot);
+			final Rectangle lower = new Rectangle(0, nHeight / 2, nWidth,
+					nHeight / 2);
+
+			int[][] dilated = null;
+			int[][] eroded = null;
+			int arrayCount = 0;
+			MaskPlane dilatedPlane = null;
+			MaskPlane erodedPlane = null;
+			int planeCount = 0;
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				int[][] image = new int[nHeight][nWidth];
+				for (int y = 0; y < nHeight; y++) {
+					for (int x = 0; x < nWidth; x++) {
+						image[y][x] = wood.accept(scene[y * nWidth + x]) ? 1
+								: 0;
+					}
+				}
+				arrayCount = 0;
+				for (int y = lower.y; y < lower.y + lower.height; y++) {
+					for (int x = lower.x; x < lower.x + lower.width; x++) {
+						arrayCount += image[y][x];
+					}
+				}
+				eroded = new int[nHeight][];
+				for (int y = 0; y < nHeight; y++) {
+					eroded[y] = image[y].clone();
+				}
+				dilated = distanceMorphology(image, k, false);
+				eroded = distanceMorphology(eroded, k, true);
+				arrayTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				MaskPlane plane = MaskPlane.fromScene(scene, nWidth, nHeight,
+						wood);
+				planeCount = plane.count(lower);
+				erodedPlane = plane.copy().erode(k);
+				dilatedPlane = plane.dilate(k);
+				planeTime += System.nanoTime() - start;
+			}
+			if ((arrayCount != planeCount)
+					|| !dilatedPlane.equals(new MaskPlane(dilated))
+					|| !erodedPlane.equals(new MaskPlane(eroded)))
+				nMismatches++;
+		}
+
+		final int nRuns = images.size() * repeats;
+		System.out.printf("masks: %d frames, dilate/erode by %d,"
+				+ " %d mismatches%n", images.size(), k, nMismatches);
+		System.out.printf("  int[][]      %8.3f ms/frame%n", arrayTime / 1e6
+				/ nRuns);
+		System.out.printf("  bit plane    %8.3f ms/frame (%.2fx)%n",
+				planeTime / 1e6 / nRuns, (double) arrayTime / planeTime);
+	}
+
+	// histogram of the colours of a quantized scene within a rectangle, a
+	// pixel at a time (the reference for the run-length histogram)
+	static private int[] pixelHistogram(short[] scene, int width, Rectangle r) {
+		int[] h = new int[512];
+		for (int y = r.y; y < r.y + r.height; y++) {
+			for (int x = r.x; x < r.x + r.width; x++) {
+				h[scene[y * width + x]]++;
+			}
+		}
+		return h;
+	}
+
+	// compares the size of the run-length encoded segments with the labels
+	// themselves, and histograms over the bounding boxes of the segments of
+	// at least minPixels pixels computed from the pixels, from the labels
+	// (before the runs are computed) and from the runs, also after the
+	// Vision object has moved on to the next screenshot
+	static public void benchmarkRuns(List<BufferedImage> images, int repeats,
+			int minPixels) {
+		long encodeTime = 0;
+		long pixelTime = 0;
+		long labelTime = 0;
+		long runTime = 0;
+		long nRuns = 0;
+		long runBytes = 0;
+		long nBoxes = 0;
+		int nMismatches = 0;
+		for (BufferedImage screenshot : images) {
+			final Vision vision = new Vision(screenshot);
+			final short[] scene = quantize(screenshot);
+			final int nWidth = screenshot.getWidth();
+			final SegmentStatistics stats = vision.getSegmentStatistics();
+			List<Rectangle> boxes = new ArrayList<Rectangle>();
+			for (int n = 0; n < stats.size(); n++) {
+				if (stats.getCount(n) >= minPixels)
+					boxes.add(stats.getBoundingBox(n));
+			}
+			nBoxes += boxes.size();
+
+			SegmentRuns runs = null;
+			boolean same = true;
+			for (int r = 0; r < repeats; r++) {
+				vision.reset(screenshot);
+				long start = System.nanoTime();
+				List<int[]> labelHists = new ArrayList<int[]>();
+				for (Rectangle box : boxes) {
+					labelHists.add(vision.histogram(box));
+				}
+				labelTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				runs = vision.getSegmentRuns();
+				encodeTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				List<int[]> pixelHists = new ArrayList<int[]>();
+				for (Rectangle box : boxes) {
+					pixelHists.add(pixelHistogram(scene, nWidth, box));
+				}
+				pixelTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				List<int[]> runHists = new ArrayList<int[]>();
+				for (Rectangle box : boxes) {
+					runHists.add(vision.histogram(box));
+				}
+				runTime += System.nanoTime() - start;
+
+				for (int i = 0; i < boxes.size(); i++) {
+					same &= Arrays.equals(pixelHists.get(i), runHists.get(i))
+							&& Arrays.equals(pixelHists.get(i), labelHists
+									.get(i));
+				}
+			}
+			// the runs keep their colours when the next frame is processed
+			vision.reset(images.get((images.indexOf(screenshot) + 1)
+					% images.size()));
+			for (Rectangle box : boxes) {
+				same &= Arrays.equals(pixelHistogram(scene, nWidth, box), runs
+						.histogram(box));
+			}
+			if (!same)
+				nMismatches++;
+			nRuns += runs.size();
+			runBytes += runs.memoryUsage();
+		}
+
+		final int nRuns0 = images.size() * repeats;
+		final long labelBytes = 4L * images.get(0).getWidth()
+				* images.get(0).getHeight() * images.size();
+		System.out.printf("runs: %d frames, %d runs/frame, %.1f KB/frame"
+				+ " with colours (labels %.1f KB, %.1fx), %d mismatches%n",
+				images.size(),
+				nRuns / images.size(), runBytes / 1024.0 / images.size(),
+				labelBytes / 1024.0 / images.size(), (double) labelBytes
+						/ runBytes, nMismatches);
+		System.out.printf("  encode       %8.3f ms/frame%n", encodeTime
+				/ 1e6 / nRuns0);
+		System.out.printf("  histograms of %d boxes/frame: pixels %.3f ms,"
+				+ " labels %.3f ms, runs %.3f ms (%.2fx)%n", nBoxes
+				/ images.size(), pixelTime / 1e6 / nRuns0, labelTime / 1e6
+				/ nRuns0, runTime / 1e6 / nRuns0, (double) pixelTime
+				/ runTime);
+	}
+
+	// objects of each kind in a snapshot, in the order of PYRAMID_KINDS
+	static private final String[] PYRAMID_KINDS = { "slingshot", "pigs",
+			"birds", "TNTs", "stones", "ice", "wood", "trajectory" };
+
+	static private List<List<?>> objectsByKind(SceneSnapshot scene) {
+		List<Rectangle> slingshot = new ArrayList<Rectangle>();
+		if (scene.getSlingshot() != null)
+			slingshot.add(scene.getSlingshot());
+		List<Rectangle> birds = new ArrayList<Rectangle>();
+		birds.addAll(scene.getRedBirds());
+		birds.addAll(scene.getBlueBirds());
+		birds.addAll(scene.getYellowBirds());
+		birds.addAll(scene.getWhiteBirds());
+		birds.addAll(scene.getBlackBirds());
+		return Arrays.<List<?>> asList(slingshot, scene.getPigs(), birds,
+				scene.getTNTs(), scene.getStones(), scene.getIce(),
+				scene.getWood(), scene.getTrajPoints());
+	}
+
+	// number of objects of found also in reference (each matched once)
+	static private int countMatches(List<?> reference, List<?> found) {
+		List<Object> unmatched = new ArrayList<Object>(reference);
+		int n = 0;
+		for (Object o : found) {
+			if (unmatched.remove(o))
+				n++;
+		}
+		return n;
+	}
+
+	// compares full resolution detection with the pyramid mode at a given
+	// downsampling factor, reporting for each kind of object how many of the
+	// full resolution objects the pyramid mode found identically and how
+	// many other objects it reported
+	static public void benchmarkPyramid(List<BufferedImage> images,
+			int repeats, int factor) {
+		long fullTime = 0;
+		long pyramidTime = 0;
+		long nCovered = 0;
+		int[] nReference = new int[PYRAMID_KINDS.length];
+		int[] nFound = new int[PYRAMID_KINDS.length];
+		int[] nOther = new int[PYRAMID_KINDS.length];
+		for (BufferedImage screenshot : images) {
+			SceneSnapshot full = null;
+			SceneSnapshot pyramid = null;
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				full = new Vision(screenshot).detectAll();
+				fullTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				pyramid = Vision.pyramid(screenshot, factor).detectAll();
+				pyramidTime += System.nanoTime() - start;
+			}
+			for (boolean b : Vision.pyramidRegionOfInterest(screenshot, factor)
+					.mask(screenshot.getWidth(), screenshot.getHeight())) {
+				if (b)
+					nCovered++;
+			}
+
+			final List<List<?>> expected = objectsByKind(full);
+			final List<List<?>> actual = objectsByKind(pyramid);
+			for (int k = 0; k < PYRAMID_KINDS.length; k++) {
+				final int n = countMatches(expected.get(k), actual.get(k));
+				nReference[k] += expected.get(k).size();
+				nFound[k] += n;
+				nOther[k] += actual.get(k).size() - n;
+			}
+		}
+
+		final int nRuns = images.size() * repeats;
+		final long nPixels = (long) images.get(0).getWidth()
+				* images.get(0).getHeight() * images.size();
+		System.out.printf("pyramid (%dx): %d frames, %.1f%% of pixels at full"
+				+ " resolution%n", factor, images.size(), 100.0 * nCovered
+				/ nPixels);
+		for (int k = 0; k < PYRAMID_KINDS.length; k++) {
+			System.out.printf("  %-10s %5d of %5d found (%5.1f%%), %d other%n",
+					PYRAMID_KINDS[k], nFound[k], nReference[k],
+					(nReference[k] == 0) ? 100.0 : 100.0 * nFound[k]
+							/ nReference[k], nOther[k]);
+		}
+		System.out.printf("  full frame   %8.3f ms/frame%n", fullTime / 1e6
+				/ nRuns);
+		System.out.printf("  pyramid      %8.3f ms/frame (%.2fx)%n",
+				pyramidTime / 1e6 / nRuns, (double) fullTime / pyramidTime);
+	}
+
+	// times labeling each screenshot (reset) and detectAll with segments
+	// smaller than thresholds of 2, 4, ... up to maxThreshold pixels merged
+	// into their neighbours (see Vision.setNoiseThreshold) against keeping
+	// every segment, and requires the detections to be unchanged
+	static public void benchmarkNoiseSegments(List<BufferedImage> images,
+			int repeats, int maxThreshold) {
+		List<Vision> visions = new ArrayList<Vision>();
+		for (BufferedImage screenshot : images) {
+			visions.add(new Vision(screenshot));
+		}
+		List<List<List<?>>> reference = new ArrayList<List<List<?>>>();
+		for (Vision vision : visions) {
+			reference.add(objectsByKind(vision.detectAll()));
+		}
+
+		final int nRuns = images.size() * repeats;
+		long[] labelTime = new long[2];
+		long[] detectTime = new long[2];
+		long[] nSegments = new long[2];
+		for (int t = 1; t <= maxThreshold; t *= 2) {
+			final int k = (t == 1) ? 0 : 1;
+			labelTime[1] = detectTime[1] = nSegments[1] = 0;
+			int[] nChanged = new int[PYRAMID_KINDS.length];
+			for (int i = 0; i < images.size(); i++) {
+				final Vision vision = visions.get(i);
+				// 1 keeps every segment, as 0 does
+				vision.setNoiseThreshold(t);
+				SceneSnapshot scene = null;
+				for (int r = 0; r < repeats; r++) {
+					long start = System.nanoTime();
+					vision.reset(images.get(i));
+					labelTime[k] += System.nanoTime() - start;
+
+					start = System.nanoTime();
+					scene = vision.detectAll();
+					detectTime[k] += System.nanoTime() - start;
+					nSegments[k] += vision.getSegmentCount();
+				}
+				final List<List<?>> found = objectsByKind(scene);
+				for (int kind = 0; kind < PYRAMID_KINDS.length; kind++) {
+					if (!found.get(kind).equals(reference.get(i).get(kind)))
+						nChanged[kind]++;
+				}
+			}
+
+			StringBuilder changes = new StringBuilder();
+			for (int kind = 0; kind < PYRAMID_KINDS.length; kind++) {
+				if (nChanged[kind] > 0)
+					changes.append(" " + PYRAMID_KINDS[kind] + " changed in "
+							+ nChanged[kind] + " frames");
+			}
+			if (t == 1) {
+				System.out.printf("noise segments: %d frames%n", images.size());
+				System.out.printf("  all          %8.0f segments/frame, %8.3f"
+						+ " ms/frame reset, %8.3f ms/frame detectAll%n",
+						(double) nSegments[0] / nRuns, labelTime[0] / 1e6
+								/ nRuns, detectTime[0] / 1e6 / nRuns);
+			} else {
+				System.out.printf("  < %-3d pixels %8.0f segments/frame, %8.3f"
+						+ " ms/frame reset, %8.3f ms/frame detectAll"
+						+ " (%.2fx)%n", t, (double) nSegments[1] / nRuns,
+						labelTime[1] / 1e6 / nRuns, detectTime[1] / 1e6
+								/ nRuns, (double) detectTime[0]
+								/ detectTime[1]);
+			}
+			if (changes.length() > 0)
+				System.err.println("ERROR: noise threshold " + t
+						+ " changed detections:" + changes);
+		}
+	}
+
+	// tracks a red bird copied from each screenshot and flown along an arc
+	// over it, counting the frames in which the bird does not keep the id
+	// it was given in the first frame, and the other objects whose id or
+	// position changed by the last frame. times tracking against detecting
+	// every tracked kind from scratch, and checks that repeating the first
+	// frame of a scene changes nothing (so that the second frame a tracker
+	// sees is already processed incrementally)
+	static public void benchmarkTracking(List<BufferedImage> images,
+			int repeats) {
+		final int nFrames = 12;
+		long trackTime = 0;
+		long detectTime = 0;
+		int nScenes = 0;
+		int nBirdMisses = 0;
+		int nStatic = 0;
+		int nStaticChanged = 0;
+		int nRepeatsChanged = 0;
+		for (BufferedImage screenshot : images) {
+			final List<Rectangle> birds = new Vision(screenshot)
+					.findRedBirds();
+			if (birds.isEmpty())
+				continue;
+			nScenes++;
+			final Rectangle bird = birds.get(0);
+			final BufferedImage sprite = screenshot.getSubimage(bird.x,
+					bird.y, bird.width, bird.height);
+			List<BufferedImage> frames = new ArrayList<BufferedImage>();
+			List<Rectangle> path = new ArrayList<Rectangle>();
+			for (int f = 0; f < nFrames; f++) {
+				final Rectangle r = new Rectangle(200 + 25 * f, 250 - 20 * f
+						+ 2 * f * f, bird.width, bird.height);
+				BufferedImage frame = new BufferedImage(screenshot.getWidth(),
+						screenshot.getHeight(), BufferedImage.TYPE_INT_RGB);
+				Graphics g = frame.getGraphics();
+				g.drawImage(screenshot, 0, 0, null);
+				g.drawImage(sprite, r.x, r.y, null);
+				g.dispose();
+				frames.add(frame);
+				path.add(r);
+			}
+
+			final Vision repeated = Vision.incremental(frames.get(0));
+			repeated.update(frames.get(0));
+			if (!repeated.getChangedRegion().isEmpty())
+				nRepeatsChanged++;
+
+			for (int r = 0; r < repeats; r++) {
+				ObjectTracker tracker = new ObjectTracker();
+				List<ObjectTracker.TrackedObject> first = null;
+				int birdId = -1;
+				for (int f = 0; f < nFrames; f++) {
+					long start = System.nanoTime();
+					tracker.update(frames.get(f));
+					trackTime += System.nanoTime() - start;
+
+					start = System.nanoTime();
+					Vision vision = new Vision(frames.get(f));
+					vision.findPigs();
+					vision.findRedBirds();
+					vision.findBlueBirds();
+					vision.findYellowBirds();
+					vision.findWhiteBirds();
+					vision.findBlackBirds();
+					vision.findTNTs();
+					vision.findStones();
+					vision.findIce();
+					vision.findWood();
+					detectTime += System.nanoTime() - start;
+
+					final Rectangle p = path.get(f);
+					int id = -1;
+					for (ObjectTracker.TrackedObject o : tracker
+							.getObjects(ObjectTracker.Kind.RED_BIRD)) {
+						if ((o.getMissed() == 0)
+								&& o.getBounds().contains(p.getCenterX(),
+										p.getCenterY()))
+							id = o.getId();
+					}
+					if (f == 0) {
+						birdId = id;
+						first = tracker.getObjects();
+					} else if ((id < 0) || (id != birdId)) {
+						nBirdMisses++;
+					}
+				}
+
+				// objects away from the arc should not have changed
+				final Rectangle arc = new Rectangle(path.get(0));
+				for (Rectangle q : path) {
+					arc.add(q);
+				}
+				for (ObjectTracker.TrackedObject o : first) {
+					if (o.getBounds().intersects(arc))
+						continue;
+					nStatic++;
+					final ObjectTracker.TrackedObject last = tracker
+							.getObject(o.getId());
+					if ((last == null)
+							|| !last.getBounds().equals(o.getBounds()))
+						nStaticChanged++;
+				}
+			}
+		}
+
+		final int nRuns = nScenes * repeats * nFrames;
+		System.out.println("tracking: " + nScenes + " scenes with a red bird, "
+				+ nFrames + " frames each, bird lost or renamed in "
+				+ nBirdMisses + " of " + (nRuns - nScenes * repeats)
+				+ " frames, " + nStaticChanged + " of " + nStatic
+				+ " other objects changed, " + nRepeatsChanged
+				+ " repeated first frames changed");
+		System.out.printf("  detect       %8.3f ms/frame%n", detectTime / 1e6
+				/ nRuns);
+		System.out.printf("  track        %8.3f ms/frame (%.2fx)%n",
+				trackTime / 1e6 / nRuns, (double) detectTime / trackTime);
+	}
+
+	// times verifying the cached slingshot of each screenshot against
+	// finding it with a new Vision object, and checks the cache against full
+	// detection on every other screenshot and on each screenshot shifted by
+	// a pixel (as if the view had scrolled). also checks that screenshots
+	// differing only by the bird in the sling (a red bird loaded into the
+	// pocket, then moved a little as it waits) are answered from the cache
+	static public void benchmarkSlingshotCache(List<BufferedImage> images,
+			int repeats) {
+		long detectTime = 0;
+		long verifyTime = 0;
+		int nMismatches = 0;
+		int nChecks = 0;
+		int nHits = 0;
+		List<Rectangle> slingshots = new ArrayList<Rectangle>();
+		for (BufferedImage screenshot : images) {
+			Rectangle sling = null;
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				sling = new Vision(screenshot).findSlingshot();
+				detectTime += System.nanoTime() - start;
+			}
+			slingshots.add(sling);
+
+			SlingshotCache cache = new SlingshotCache();
+			cache.remember(sling, screenshot);
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				cache.findSlingshot(screenshot);
+				verifyTime += System.nanoTime() - start;
+			}
+			if (cache.getMisses() != ((sling == null) ? repeats : 0))
+				nMismatches++;
+		}
+
+		for (int i = 0; i < images.size(); i++) {
+			final BufferedImage screenshot = images.get(i);
+			BufferedImage shifted = new BufferedImage(screenshot.getWidth(),
+					screenshot.getHeight(), BufferedImage.TYPE_INT_RGB);
+			Graphics g = shifted.getGraphics();
+			g.drawImage(screenshot, 1, 0, null);
+			g.dispose();
+			final Rectangle shiftedSling = new Vision(shifted).findSlingshot();
+
+			for (int j = 0; j <= images.size(); j++) {
+				if (j == i)
+					continue;
+				final BufferedImage other = (j < images.size()) ? images.get(j)
+						: shifted;
+				final Rectangle expected = (j < images.size()) ? slingshots
+						.get(j) : shiftedSling;
+				SlingshotCache cache = new SlingshotCache();
+				cache.remember(slingshots.get(i), screenshot);
+				final Rectangle found = cache.findSlingshot(other);
+				nChecks++;
+				nHits += cache.getHits();
+				if ((found == null) ? (expected != null) : !found
+						.equals(expected))
+					nMismatches++;
+			}
+		}
+
+		BufferedImage sprite = null;
+		for (BufferedImage screenshot : images) {
+			final List<Rectangle> birds = new Vision(screenshot)
+					.findRedBirds();
+			if (!birds.isEmpty()) {
+				final Rectangle bird = birds.get(0);
+				sprite = screenshot.getSubimage(bird.x, bird.y, bird.width,
+						bird.height);
+				break;
+			}
+		}
+		int nBirdChecks = 0;
+		int nBirdHits = 0;
+		for (int i = 0; (sprite != null) && (i < images.size()); i++) {
+			final Rectangle sling = slingshots.get(i);
+			if (sling == null)
+				continue;
+			final Rectangle pocket = SlingshotCache.pocket(sling);
+			final int x = (int) pocket.getCenterX() - sprite.getWidth() / 2;
+			final int y = (int) pocket.getCenterY() - sprite.getHeight() / 2;
+			BufferedImage[] frames = { images.get(i), null, null };
+			for (int f = 1; f < frames.length; f++) {
+				frames[f] = new BufferedImage(images.get(i).getWidth(), images
+						.get(i).getHeight(), BufferedImage.TYPE_INT_RGB);
+				Graphics g = frames[f].getGraphics();
+				g.drawImage(images.get(i), 0, 0, null);
+				g.drawImage(sprite, x + 2 * (f - 1), y - 2 * (f - 1), null);
+				g.dispose();
+			}
+			for (int f = 1; f < frames.length; f++) {
+				SlingshotCache cache = new SlingshotCache();
+				cache.remember(sling, frames[f - 1]);
+				final Rectangle found = cache.findSlingshot(frames[f]);
+				nBirdChecks++;
+				nBirdHits += cache.getHits();
+				if (!sling.equals(found))
+					nMismatches++;
+			}
+		}
+
+		final int nRuns = images.size() * repeats;
+		System.out.println("slingshot cache: " + images.size()
+				+ " screenshots, " + nChecks + " cross checks (" + nHits
+				+ " answered from the cache), " + nBirdChecks
+				+ " checks with another bird in the sling (" + nBirdHits
+				+ " answered from the cache), " + nMismatches + " mismatches");
+		System.out.printf("  detect       %8.3f ms/frame%n", detectTime / 1e6
+				/ nRuns);
+		System.out.printf("  verify       %8.3f ms/frame (%.0fx)%n",
+				verifyTime / 1e6 / nRuns, (double) detectTime / verifyTime);
+	}
+
+	// times fitting a parabola to the trajectory points of each screenshot
+	// as they arrive one at a time, solving again after every point, with
+	// Jama matrices (as fitParabola used to) against ParabolaFitter, and
+	// compares the fitted heights at the points
+	static public void benchmarkParabola(List<BufferedImage> images,
+			int repeats) {
+		List<List<Point>> trajectories = new ArrayList<List<Point>>();
+		for (BufferedImage screenshot : images) {
+			trajectories.add(new Vision(screenshot).findTrajPoints());
+		}
+
+		long matrixTime = 0;
+		long fitterTime = 0;
+		int nFits = 0;
+		int nMismatches = 0;
+		double maxDifference = 0;
+		for (List<Point> points : trajectories) {
+			final int n = points.size();
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				Matrix[] fits = new Matrix[n];
+				for (int k = 0; k < n; k++) {
+					double[][] arrayPhiX = new double[k + 1][3];
+					double[][] arrayY = new double[k + 1][1];
+					for (int i = 0; i <= k; i++) {
+						final Point p = points.get(i);
+						arrayPhiX[i][0] = Math.pow(p.x, 2);
+						arrayPhiX[i][1] = p.x;
+						arrayPhiX[i][2] = 1;
+						arrayY[i][0] = p.y;
+					}
+					Matrix PhiX = new Matrix(arrayPhiX);
+					try {
+						fits[k] = PhiX.transpose().times(PhiX).inverse()
+								.times(PhiX.transpose()).times(new Matrix(arrayY));
+					} catch (Exception e) {
+						// singular
+					}
+				}
+				matrixTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				ParabolaFitter fitter = new ParabolaFitter();
+				boolean[] solved = new boolean[n];
+				double[][] heights = new double[n][];
+				for (int k = 0; k < n; k++) {
+					fitter.add(points.get(k).x, points.get(k).y);
+					solved[k] = fitter.solve();
+					if ((r == 0) && solved[k]) {
+						heights[k] = new double[k + 1];
+						for (int i = 0; i <= k; i++) {
+							heights[k][i] = fitter.evaluate(points.get(i).x);
+						}
+					}
+				}
+				fitterTime += System.nanoTime() - start;
+				if (r > 0)
+					continue;
+
+				// fits of fewer than three points are singular, but Jama
+				// does not always notice
+				for (int k = 2; k < n; k++) {
+					nFits++;
+					if ((fits[k] == null) != !solved[k]) {
+						nMismatches++;
+						continue;
+					}
+					if (fits[k] == null)
+						continue;
+					for (int i = 0; i <= k; i++) {
+						final Point p = points.get(i);
+						final double y = fits[k].get(0, 0) * p.x * p.x
+								+ fits[k].get(1, 0) * p.x + fits[k].get(2, 0);
+						maxDifference = Math.max(maxDifference,
+								Math.abs(y - heights[k][i]));
+					}
+				}
+			}
+		}
+
+		System.out.println("parabola: " + images.size() + " screenshots, "
+				+ nFits + " fits, " + nMismatches + " singular mismatches, "
+				+ String.format("%.2g", maxDifference)
+				+ " pixels largest height difference");
+		System.out.printf("  matrices     %8.3f ms/frame%n", matrixTime / 1e6
+				/ images.size() / repeats);
+		System.out.printf("  incremental  %8.3f ms/frame (%.0fx)%n",
+				fitterTime / 1e6 / images.size() / repeats,
+				(double) matrixTime / fitterTime);
+	}
+
+	// draws trajectory points along the trajectory TrajectoryPlanner predicts
+	// for shots at a few angles, with the true angle off by two degrees
+	// either way, into each screenshot with a slingshot, and compares finding
+	// them with a full scan (findTrajPoints) against searching the corridor
+	// around the prediction (findTrajPoints(sling, release)), both on the
+	// same Vision object and with a Vision object processing only the
+	// corridor (trajectoryCorridor)
+	static public void benchmarkTrajectoryCorridor(List<BufferedImage> images,
+			int repeats) {
+		final double[] angles = { Math.toRadians(20), Math.toRadians(40),
+				Math.toRadians(60) };
+		final double[] errors = { Math.toRadians(-2), Math.toRadians(2) };
+		final TrajectoryPlanner planner = new TrajectoryPlanner();
+
+		long scanTime = 0;
+		long corridorTime = 0;
+		long frameTime = 0;
+		long corridorFrameTime = 0;
+		int nShots = 0;
+		int nDots = 0;
+		int nFound = 0;
+		int nCorridorFound = 0;
+		int nExtra = 0;
+		int nCorridorExtra = 0;
+		for (BufferedImage screenshot : images) {
+			final Rectangle sling = new Vision(screenshot).findSlingshot();
+			if (sling == null)
+				continue;
+			for (double angle : angles) {
+				for (double error : errors) {
+					final Point release = planner
+							.findReleasePoint(sling, angle);
+					final Point actual = planner.findReleasePoint(sling, angle
+							+ error);
+
+					// draw the points of the actual trajectory
+					BufferedImage shot = new BufferedImage(
+							screenshot.getWidth(), screenshot.getHeight(),
+							BufferedImage.TYPE_INT_RGB);
+					Graphics g = shot.getGraphics();
+					g.drawImage(screenshot, 0, 0, null);
+					g.setColor(new Color(208, 208, 208));
+					List<Point> dots = new ArrayList<Point>();
+					for (int x = (int) sling.getCenterX() + sling.width * 2; x < shot
+							.getWidth() - 4; x += 12) {
+						final int y = planner.getYCoordinate(sling, actual, x);
+						if ((y < RegionOfInterest.HUD.height) || (y + 4 > shot.getHeight()))
+							continue;
+						g.fillRect(x, y, 4, 4);
+						dots.add(new Point(x + 2, y + 2));
+					}
+					g.dispose();
+					nShots++;
+					nDots += dots.size();
+
+					List<Point> found = null;
+					List<Point> corridor = null;
+					for (int r = 0; r < repeats; r++) {
+						long start = System.nanoTime();
+						Vision vision = new Vision(shot);
+						final long processed = System.nanoTime();
+						found = vision.findTrajPoints();
+						scanTime += System.nanoTime() - processed;
+						frameTime += System.nanoTime() - start;
+
+						start = System.nanoTime();
+						vision.findTrajPoints(sling, release, planner);
+						corridorTime += System.nanoTime() - start;
+
+						start = System.nanoTime();
+						corridor = new Vision(shot, Vision.trajectoryCorridor(
+								sling, release, planner, shot.getWidth(),
+								shot.getHeight())).findTrajPoints(sling,
+								release, planner);
+						corridorFrameTime += System.nanoTime() - start;
+					}
+					nFound += countNear(dots, found);
+					nExtra += found.size() - countNear(found, dots);
+					nCorridorFound += countNear(dots, corridor);
+					nCorridorExtra += corridor.size()
+							- countNear(corridor, dots);
+				}
+			}
+		}
+
+		final int nRuns = nShots * repeats;
+		System.out.println("trajectory corridor: " + nShots + " shots, "
+				+ nDots + " points drawn");
+		System.out.printf("  full scan    %8.3f ms/shot, %d found, %d extra%n",
+				scanTime / 1e6 / nRuns, nFound, nExtra);
+		System.out.printf(
+				"  corridor     %8.3f ms/shot (%.0fx), %d found, %d extra%n",
+				corridorTime / 1e6 / nRuns, (double) scanTime / corridorTime,
+				nCorridorFound, nCorridorExtra);
+		System.out.printf("  full frame   %8.3f ms/shot%n", frameTime / 1e6
+				/ nRuns);
+		System.out.printf("  corridor frame %6.3f ms/shot (%.1fx)%n",
+				corridorFrameTime / 1e6 / nRuns, (double) frameTime
+						/ corridorFrameTime);
+	}
+
+	// number of points within 3 pixels of one of a list of points
+	private static int countNear(List<Point> points, List<Point> targets) {
+		int n = 0;
+		for (Point p : points) {
+			for (Point q : targets) {
+				if ((Math.abs(p.x - q.x) <= 3) && (Math.abs(p.y - q.y) <= 3)) {
+					n++;
+					break;
+				}
+			}
+		}
+		return n;
+	}
+
+	// times the vector and scalar forms of the per-pixel kernels (see
+	// PixelKernels) on the rows of each screenshot, differencing each
+	// screenshot against the next, and checks that they agree
+	static public void benchmarkKernels(List<BufferedImage> images, int repeats) {
+		final int nWidth = images.get(0).getWidth();
+		final int nHeight = images.get(0).getHeight();
+		int[][] frames = new int[images.size()][nWidth * nHeight];
+		for (int i = 0; i < images.size(); i++) {
+			final PixelReader pixels = new PixelReader(images.get(i));
+			final int[] row = new int[nWidth];
+			for (int y = 0; y < nHeight; y++) {
+				pixels.readRow(y, row);
+				System.arraycopy(row, 0, frames[i], y * nWidth, nWidth);
+			}
+		}
+
+		final long[] time = new long[6];
+		int nMismatches = 0;
+		final int[] row = new int[nWidth];
+		final int[] rowA = new int[nWidth];
+		final int[] rowB = new int[nWidth];
+		final short[] scene = new short[nWidth * nHeight];
+		final short[] vectorScene = new short[nWidth * nHeight];
+		for (int i = 0; i < frames.length; i++) {
+			final int[] next = frames[(i + 1) % frames.length];
+			long diff = 0, vectorDiff = 0;
+			int count = 0, vectorCount = 0;
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				for (int y = 0; y < nHeight; y++) {
+					System.arraycopy(frames[i], y * nWidth, row, 0, nWidth);
+					PixelKernels.quantizeRowScalar(row, scene, y * nWidth,
+							nWidth);
+				}
+				time[0] += System.nanoTime() - start;
+				start = System.nanoTime();
+				for (int y = 0; y < nHeight; y++) {
+					System.arraycopy(frames[i], y * nWidth, row, 0, nWidth);
+					PixelKernels.quantizeRowVector(row, vectorScene, y
+							* nWidth, nWidth);
+				}
+				time[1] += System.nanoTime() - start;
+
+				diff = vectorDiff = 0;
+				count = vectorCount = 0;
+				for (int y = 0; y < nHeight; y++) {
+					System.arraycopy(frames[i], y * nWidth, rowA, 0, nWidth);
+					System.arraycopy(next, y * nWidth, rowB, 0, nWidth);
+					start = System.nanoTime();
+					diff += PixelKernels.absoluteDifferenceScalar(rowA, rowB,
+							nWidth);
+					time[2] += System.nanoTime() - start;
+					start = System.nanoTime();
+					vectorDiff += PixelKernels.absoluteDifferenceVector(rowA,
+							rowB, nWidth);
+					time[3] += System.nanoTime() - start;
+					start = System.nanoTime();
+					count += PixelKernels.countDifferentScalar(rowA, rowB,
+							nWidth);
+					time[4] += System.nanoTime() - start;
+					start = System.nanoTime();
+					vectorCount += PixelKernels.countDifferentVector(rowA,
+							rowB, nWidth);
+					time[5] += System.nanoTime() - start;
+				}
+			}
+			if (!Arrays.equals(scene, vectorScene) || (diff != vectorDiff)
+					|| (count != vectorCount))
+				nMismatches++;
+		}
+
+		final int nRuns = frames.length * repeats;
+		System.out.println("kernels: " + frames.length + " screenshots, "
+				+ nMismatches + " mismatches, vector kernels "
+				+ (PixelKernels.VECTORIZED ? "used" : "not used"));
+		final String[] names = { "quantize", "difference", "count" };
+		for (int k = 0; k < 3; k++) {
+			System.out.printf("  %-12s %8.3f ms/frame scalar, %8.3f vector (%.1fx)%n",
+					names[k], time[2 * k] / 1e6 / nRuns, time[2 * k + 1]
+							/ 1e6 / nRuns, (double) time[2 * k]
+							/ time[2 * k + 1]);
+		}
+	}
+
+	// times building the support graph of the blocks and pigs of each
+	// screenshot and asking it which pigs every object holds up, against
+	// checking every pair of objects for contacts and searching up from the
+	// ground without each object in turn, and checks that they agree
+	static public void benchmarkSupportGraph(List<BufferedImage> images,
+			int repeats) {
+		long graphTime = 0;
+		long pairTime = 0;
+		long queryTime = 0;
+		long searchTime = 0;
+		int nObjects = 0;
+		int nContacts = 0;
+		int nHeldUp = 0;
+		int nMismatches = 0;
+		for (BufferedImage screenshot : images) {
+			final Vision vision = new Vision(screenshot);
+			List<Rectangle> blocks = new ArrayList<Rectangle>(vision
+					.findWood());
+			blocks.addAll(vision.findStones());
+			blocks.addAll(vision.findIce());
+			blocks.addAll(vision.findTNTs());
+			final List<Rectangle> pigs = vision.findPigs();
+			List<Rectangle> objects = new ArrayList<Rectangle>(blocks);
+			objects.addAll(pigs);
+			final int n = objects.size();
+			nObjects += n;
+
+			SupportGraph graph = null;
+			boolean[][] rests = null;
+			int[][] graphPigs = new int[n][];
+			boolean[][] searchPigs = new boolean[n][];
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				graph = new SupportGraph(blocks, pigs);
+				for (int k = 0; k < n; k++) {
+					graph.getResting(k);
+				}
+				graphTime += System.nanoTime() - start;
+				start = System.nanoTime();
+				for (int k = 0; k < n; k++) {
+					graphPigs[k] = graph.getPigsLosingSupport(k);
+				}
+				queryTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				rests = restingPairs(objects, SupportGraph.TOLERANCE);
+				pairTime += System.nanoTime() - start;
+				start = System.nanoTime();
+				for (int k = 0; k < n; k++) {
+					searchPigs[k] = supportedWithout(rests, k);
+				}
+				searchTime += System.nanoTime() - start;
+			}
+
+			// compare the contacts and the pigs held up
+			boolean same = true;
+			for (int i = 0; i < n; i++) {
+				int nSupports = 0;
+				for (int j = 0; j < n; j++) {
+					if (rests[i][j])
+						nSupports++;
+				}
+				nContacts += nSupports;
+				for (int s : graph.getSupports(i)) {
+					same &= (s == graph.getGround()) ? (nSupports == 0)
+							: rests[i][s];
+				}
+				same &= (graph.getSupportCount(i) == Math.max(1, nSupports));
+			}
+			for (int k = 0; k < n; k++) {
+				int nLost = 0;
+				for (int p = 0; p < pigs.size(); p++) {
+					if (!searchPigs[k][graph.getPig(p)] && (graph.getPig(p) != k))
+						nLost++;
+				}
+				for (int pig : graphPigs[k]) {
+					same &= !searchPigs[k][pig];
+				}
+				same &= (graphPigs[k].length == nLost);
+				nHeldUp += nLost;
+			}
+			if (!same)
+				nMismatches++;
+		}
+
+		final int nRuns = images.size() * repeats;
+		System.out.println("support graph: " + images.size()
+				+ " screenshots, " + nObjects + " objects, " + nContacts
+				+ " contacts, " + nHeldUp + " pigs held up, " + nMismatches
+				+ " mismatches");
+		System.out.printf("  pairs        %8.3f ms/frame build, %8.3f ms/frame pigs held up%n",
+				pairTime / 1e6 / nRuns, searchTime / 1e6 / nRuns);
+		System.out.printf("  graph        %8.3f ms/frame build, %8.3f ms/frame pigs held up (%.0fx)%n",
+				graphTime / 1e6 / nRuns, queryTime / 1e6 / nRuns,
+				(double) searchTime / queryTime);
+	}
+
+	// times finding the wood regions' bounding boxes against tracing their
+	// outlines as well, counts the outlines' vertices against the pixels of
+	// the boxes, and checks that the outlines' bounds are the boxes
+	static public void benchmarkWoodPolygons(List<BufferedImage> images,
+			int repeats) {
+		long boxTime = 0;
+		long polygonTime = 0;
+		int nRegions = 0;
+		long nVertices = 0;
+		long nPixels = 0;
+		int nMismatches = 0;
+		for (BufferedImage screenshot : images) {
+			List<Rectangle> boxes = null;
+			List<Polygon> polygons = null;
+			for (int r = 0; r < repeats; r++) {
+				Vision vision = new Vision(screenshot);
+				long start = System.nanoTime();
+				boxes = vision.findWood();
+				boxTime += System.nanoTime() - start;
+
+				vision = new Vision(screenshot);
+				start = System.nanoTime();
+				polygons = vision.findWoodPolygons();
+				polygonTime += System.nanoTime() - start;
+			}
+
+			boolean same = (boxes.size() == polygons.size());
+			for (int k = 0; same && (k < boxes.size()); k++) {
+				final Rectangle box = boxes.get(k);
+				same = box.equals(polygons.get(k).getBounds());
+				nVertices += polygons.get(k).npoints;
+				nPixels += box.width * box.height;
+			}
+			nRegions += boxes.size();
+			if (!same)
+				nMismatches++;
+		}
+
+		final int nRuns = images.size() * repeats;
+		System.out.println("wood polygons: " + images.size()
+				+ " screenshots, " + nRegions + " regions, " + nMismatches
+				+ " mismatches");
+		System.out.printf("  boxes        %8.3f ms/frame%n", boxTime / 1e6
+				/ nRuns);
+		System.out.printf("  polygons     %8.3f ms/frame (%+.0f%%)%n",
+				polygonTime / 1e6 / nRuns, 100.0 * (polygonTime - boxTime)
+						/ boxTime);
+		System.out.printf("  %.1f vertices per region, %.1f pixels per box%n",
+				(double) nVertices / Math.max(1, nRegions), (double) nPixels
+						/ Math.max(1, nRegions));
+	}
+
+	// rests[i][j] if object i rests on object j (see SupportGraph)
+	private static boolean[][] restingPairs(List<Rectangle> objects,
+			int tolerance) {
+		final int n = objects.size();
+		boolean[][] rests = new boolean[n][n];
+		for (int i = 0; i < n; i++) {
+			final Rectangle a = objects.get(i);
+			for (int j = 0; j < n; j++) {
+				final Rectangle b = objects.get(j);
+				rests[i][j] = (i != j) && (a.x < b.x + b.width)
+						&& (b.x < a.x + a.width)
+						&& (Math.abs(b.y - (a.y + a.height)) <= tolerance)
+						&& (2 * a.y + a.height < 2 * b.y + b.height);
+			}
+		}
+		return rests;
+	}
+
+	// objects still resting on the ground (through other objects) without
+	// object k
+	private static boolean[] supportedWithout(boolean[][] rests, int k) {
+		final int n = rests.length;
+		boolean[] supported = new boolean[n];
+		int[] queue = new int[n];
+		int nQueued = 0;
+		for (int i = 0; i < n; i++) {
+			boolean grounded = (i != k);
+			for (int j = 0; j < n; j++) {
+				grounded &= !rests[i][j];
+			}
+			if (grounded) {
+				supported[i] = true;
+				queue[nQueued++] = i;
+			}
+		}
+		for (int q = 0; q < nQueued; q++) {
+			for (int i = 0; i < n; i++) {
+				if (!supported[i] && (i != k) && rests[i][queue[q]]) {
+					supported[i] = true;
+					queue[nQueued++] = i;
+				}
+			}
+		}
+		return supported;
+	}
+
+	static public void main(String[] args) {
+		// check command line arguments
+		if ((args.length < 1) || (args.length > 2)) {
+			System.err
+					.println("  USAGE: java VisionBenchmark (<directory> | <image>) [<repeats>]");
+			System.exit(1);
+		}
+		final int repeats = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+
+		List<BufferedImage> images = loadImages(args[0]);
+		if (images.isEmpty()) {
+			System.err.println("ERROR: no images found in " + args[0]);
+			System.exit(1);
+		}
+
+		// warm up before measuring
+		benchmarkKernels(images, 1);
+		benchmarkKernels(images, repeats);
+		benchmarkLabeling(images, 1);
+		benchmarkLabeling(images, repeats);
+		benchmarkStripedPreprocessing(images, 1, 8);
+		benchmarkStripedPreprocessing(images, repeats, 8);
+		benchmarkIncremental(images, 1);
+		benchmarkIncremental(images, repeats);
+		benchmarkSlingshotCache(images, 1);
+		benchmarkSlingshotCache(images, repeats);
+		benchmarkTracking(images, 1);
+		benchmarkTracking(images, repeats);
+		benchmarkSupportGraph(images, 1);
+		benchmarkSupportGraph(images, repeats);
+		benchmarkWoodPolygons(images, 1);
+		benchmarkWoodPolygons(images, repeats);
+		benchmarkParabola(images, 1);
+		benchmarkParabola(images, repeats);
+		benchmarkTrajectoryCorridor(images, 1);
+		benchmarkTrajectoryCorridor(images, repeats);
+		benchmarkRegionOfInterest(images, 1);
+		benchmarkRegionOfInterest(images, repeats);
+		benchmarkMasks(images, 1, 3);
+		benchmarkMasks(images, repeats, 3);
+		benchmarkRuns(images, 1, 100);
+		benchmarkRuns(images, repeats, 100);
+		benchmarkPyramid(images, 1, 2);
+		benchmarkPyramid(images, repeats, 2);
+		benchmarkPyramid(images, repeats, 4);
+		benchmarkNoiseSegments(images, 1, 16);
+		benchmarkNoiseSegments(images, repeats, 16);
+		benchmarkDetectors(images, 1);
+		benchmarkDetectors(images, repeats);
+		benchmarkParallelDetection(images, 1, 8);
+		benchmarkParallelDetection(images, repeats, 8);
+	}
+}
@@ -60,12 +60,14 @@ public class VisionUtils {
         int width = Math.min(imgA.getWidth(), imgB.getWidth());
         int n = imgA.getWidth() * imgA.getHeight() + imgB.getWidth() * imgB.getHeight() - 2 * width * height;
 
+        final PixelReader pixelsA = new PixelReader(imgA);
+        final PixelReader pixelsB = new PixelReader(imgB);
+        final int[] rowA = new int[imgA.getWidth()];
+        final int[] rowB = new int[imgB.getWidth()];
         for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                if (imgA.getRGB(x, y) != imgB.getRGB(x, y)) {
-                    n += 1;
-                }
-            }
+            pixelsA.readRow(y, rowA);
+            pixelsB.readRow(y, rowB);
+            n += PixelKernels.countDifferent(rowA, rowB, width);
         }
 
         return n;
@@ -80,15 +82,14 @@ public class VisionUtils {
 
         int n = imgA.getWidth() * imgA.getHeight() + imgB.getWidth() * imgB.getHeight() - 2 * width * height;
         int diff = 3 * 255 * n;
+        final PixelReader pixelsA = new PixelReader(imgA);
+        final PixelReader pixelsB = new PixelReader(imgB);
+        final int[] rowA = new int[imgA.getWidth()];
+        final int[] rowB = new int[imgB.getWidth()];
         for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                final int colourA = imgA.getRGB(x, y);
-                final int colourB = imgB.getRGB(x, y);
-
-                diff += Math.abs((int)((colourA & 0x00ff0000) >> 16) - (int)((colourB & 0x00ff0000) >> 16));
-                diff += Math.abs((int)((colourA & 0x0000ff00) >> 8) - (int)((colourB & 0x0000ff00) >> 8));
-                diff += Math.abs((int)(colourA & 0x000000ff) - (int)(colourB & 0x000000ff));
-            }
+            pixelsA.readRow(y, rowA);
+            pixelsB.readRow(y, rowB);
+            diff += PixelKernels.absoluteDifference(rowA, rowB, width);
         }
 
         return diff;
@@ -134,9 +135,12 @@ public class VisionUtils {
 		int[] sums = new int[img.getWidth()];
 		Arrays.fill(sums, 0);
 
+		final PixelReader pixels = new PixelReader(img);
+		final int[] row = new int[img.getWidth()];
 		for (int y = 0; y < img.getHeight(); y++) {
+			pixels.readRow(y, row);
 			for (int x = 0; x < img.getWidth(); x++) {
-				final int colour = img.getRGB(x, y);
+				final int colour = row[x];
 				sums[x] += (int) ((colour & 0x00ff0000) >> 16);
 				sums[x] += (int) ((colour & 0x0000ff00) >> 8);
 				sums[x] += (int) (colour & 0x000000ff);
@@ -272,21 +276,28 @@ public class VisionUtils {
 		return image;
 	}
 
-	// dilates non-zero regions image by k pixels
+	// dilates non-zero regions image by k pixels (in place, on a bit plane;
+	// the same as thresholding computeDistanceMap at k)
 	public static int[][] dilateRegions(int[][] image, int k) {
-		int[][] dimage = computeDistanceMap(image);
-		for (int y = 0; y < dimage.length; y++) {
-			for (int x = 0; x < dimage[y].length; x++) {
-				dimage[y][x] = (dimage[y][x] <= k) ? 1 : 0;
-			}
+		MaskPlane mask;
+		if (k >= image.length + image[0].length) {
+			// no pixel is further away than the distance map's initial value
+			mask = new MaskPlane(image[0].length, image.length).invert();
+		} else {
+			mask = new MaskPlane(image).dilate(k);
 		}
-
-		return dimage;
+		return mask.toArray(image);
 	}
 
 	// erodes non-zero regions image by k pixels
 	public static int[][] erodeRegions(int[][] image, int k) {
-		return invertRegions(dilateRegions(invertRegions(image), k));
+		if (k >= image.length + image[0].length) {
+			for (int[] row : image) {
+				Arrays.fill(row, 0);
+			}
+			return image;
+		}
+		return new MaskPlane(image).erode(k).toArray(image);
 	}
 
 	// dialates a bounding box by (dx, dy) pixels all around
@@ -358,6 +369,272 @@ public class VisionUtils {
 		return cc;
 	}
 
+	// finds 4-connected components of a row-major width-by-height image by
+	// breadth first search (and renumbers from zero) into cc; pixels with
+	// negative value are ignored and queue is a work buffer of at least
+	// width * height entries. returns the number of components
+	public static int findConnectedComponents(short[] image, int width,
+			int height, int[] cc, int[] queue) {
+		return findConnectedComponents(image, width, height, cc, queue, null);
+	}
+
+	// as above, also accumulating the statistics of every component into
+	// stats (unless null)
+	public static int findConnectedComponents(short[] image, int width,
+			int height, int[] cc, int[] queue, SegmentStatistics stats) {
+
+		final int nPixels = width * height;
+		Arrays.fill(cc, 0, nPixels, -1);
+		if (stats != null)
+			stats.clear(0);
+
+		// iterate over all pixels
+		int n = -1;
+		for (int i = 0; i < nPixels; i++) {
+			// skip negative pixels
+			if (image[i] == -1)
+				continue;
+
+			// check if component was already numbered
+			if (cc[i] != -1)
+				continue;
+
+			// number the new component
+			n = n + 1;
+			if (stats != null)
+				stats.addSegment();
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = i;
+			cc[i] = n;
+			while (head < tail) {
+				final int p = queue[head++];
+				final int x = p % width;
+				final short c = image[p];
+				if (stats != null)
+					stats.addRun(n, c, x, x + 1, p / width);
+				if ((p >= width) && (image[p - width] == c)
+						&& (cc[p - width] == -1)) {
+					queue[tail++] = p - width;
+					cc[p - width] = n;
+				}
+				if ((x > 0) && (image[p - 1] == c) && (cc[p - 1] == -1)) {
+					queue[tail++] = p - 1;
+					cc[p - 1] = n;
+				}
+				if ((p < nPixels - width) && (image[p + width] == c)
+						&& (cc[p + width] == -1)) {
+					queue[tail++] = p + width;
+					cc[p + width] = n;
+				}
+				if ((x < width - 1) && (image[p + 1] == c)
+						&& (cc[p + 1] == -1)) {
+					queue[tail++] = p + 1;
+					cc[p + 1] = n;
+				}
+			}
+		}
+
+		return n + 1;
+	}
+
+	// finds 4-connected components of a row-major width-by-height image by a
+	// two-pass scan with an array-backed union-find, numbering them exactly
+	// like the breadth first search above (in order of first occurrence);
+	// pixels with negative value are ignored. parent and rank are work
+	// buffers of at least width * height entries. returns the number of
+	// components
+	public static int findConnectedComponentsUnionFind(short[] image,
+			int width, int height, int[] cc, int[] parent, byte[] rank) {
+		return findConnectedComponentsUnionFind(image, width, height, cc,
+				parent, rank, null);
+	}
+
+	// as above, also accumulating the statistics of every component into
+	// stats (unless null) during the second pass
+	public static int findConnectedComponentsUnionFind(short[] image,
+			int width, int height, int[] cc, int[] parent, byte[] rank,
+			SegmentStatistics stats) {
+		final int nLabels = labelStripe(image, width, 0, height, cc, parent,
+				rank);
+		final int n = resolveLabels(parent, new int[] { 0 },
+				new int[] { nLabels });
+		if (stats == null) {
+			relabelStripe(width, 0, height, cc, parent);
+		} else {
+			stats.clear(n);
+			relabelStripe(image, width, 0, height, cc, parent, stats);
+		}
+		return n;
+	}
+
+	// the steps of findConnectedComponentsUnionFind, applied to horizontal
+	// stripes of the image so that the stripes can be labeled concurrently:
+	// label every stripe, merge every seam, resolve the labels once and then
+	// relabel every stripe. the result does not depend on the number of
+	// stripes. they leave half-built union-find state between calls, so
+	// only Vision (which runs them in order) uses them
+
+	// first pass over rows y0 to y1 (exclusive): assigns provisional labels
+	// starting at y0 * width and records equivalences within the stripe.
+	// returns the number of provisional labels
+	static int labelStripe(short[] image, int width, int y0, int y1,
+			int[] cc, int[] parent, byte[] rank) {
+		return labelStripe(image, width, y0, y1, cc, parent, rank, null);
+	}
+
+	// as above, also adding every run of pixels with the same provisional
+	// label l to segment l - y0 * width of stats (unless null), which the
+	// caller clears to no segments (see resolveStatistics)
+	static int labelStripe(short[] image, int width, int y0, int y1,
+			int[] cc, int[] parent, byte[] rank, SegmentStatistics stats) {
+		final int base = y0 * width;
+		int nLabels = base;
+		for (int y = y0, i = base; y < y1; y++) {
+			// pixels of the same colour in a row share a provisional label
+			int start = 0;
+			for (int x = 0; x < width; x++, i++) {
+				final short c = image[i];
+				if ((stats != null) && (x > 0) && (image[i - 1] != c)) {
+					if (image[i - 1] != -1)
+						stats.addRun(cc[i - 1] - base, image[i - 1], start,
+								x, y);
+					start = x;
+				}
+				if (c == -1) {
+					cc[i] = -1;
+					continue;
+				}
+				final boolean left = (x > 0) && (image[i - 1] == c);
+				final boolean up = (y > y0) && (image[i - width] == c);
+				if (left) {
+					cc[i] = cc[i - 1];
+					// left and up are already joined through the up-left pixel
+					if (up && (image[i - width - 1] != c))
+						union(parent, rank, cc[i - 1], cc[i - width]);
+				} else if (up) {
+					cc[i] = cc[i - width];
+				} else {
+					cc[i] = nLabels;
+					parent[nLabels] = nLabels;
+					rank[nLabels] = 0;
+					nLabels++;
+					if (stats != null)
+						stats.addSegment();
+				}
+			}
+			if ((stats != null) && (image[i - 1] != -1))
+				stats.addRun(cc[i - 1] - base, image[i - 1], start, width, y);
+		}
+		return nLabels - base;
+	}
+
+	// joins the labels of row y to those of row y - 1, where a stripe starts
+	static void mergeStripeSeam(short[] image, int width, int y,
+			int[] cc, int[] parent, byte[] rank) {
+		for (int x = 0, i = y * width; x < width; x++, i++) {
+			final short c = image[i];
+			if ((c == -1) || (image[i - width] != c))
+				continue;
+			// already joined through the pixels to the left
+			if ((x > 0) && (image[i - 1] == c) && (image[i - width - 1] == c))
+				continue;
+			union(parent, rank, cc[i], cc[i - width]);
+		}
+	}
+
+	// numbers the roots in order of first occurrence, given the first label
+	// and number of labels of each stripe (in stripe order); a resolved
+	// label l is stored as parent[l] = -(final label + 1). returns the
+	// number of components
+	static int resolveLabels(int[] parent, int[] starts, int[] counts) {
+		int n = 0;
+		for (int s = 0; s < starts.length; s++) {
+			for (int l = starts[s]; l < starts[s] + counts[s]; l++) {
+				int r = l;
+				while ((parent[r] >= 0) && (parent[r] != r))
+					r = parent[r];
+				if (parent[r] >= 0)
+					parent[r] = -(++n);
+				parent[l] = parent[r];
+			}
+		}
+		return n;
+	}
+
+	// adds the statistics collected by labelStripe for the provisional
+	// labels of the stripe starting at label start to segment stats of
+	// their components, once the labels are resolved
+	static void resolveStatistics(int[] parent, int start,
+			SegmentStatistics provisional, SegmentStatistics stats) {
+		for (int l = 0; l < provisional.size(); l++) {
+			stats.add(-parent[start + l] - 1, provisional, l);
+		}
+	}
+
+	// second pass over rows y0 to y1 (exclusive): replaces provisional
+	// labels by final ones
+	static void relabelStripe(int width, int y0, int y1, int[] cc,
+			int[] parent) {
+		for (int i = y0 * width; i < y1 * width; i++) {
+			if (cc[i] >= 0)
+				cc[i] = -parent[cc[i]] - 1;
+		}
+	}
+
+	// second pass over rows y0 to y1 (exclusive) as above, adding every run
+	// of pixels of a component to its statistics (cleared to the number of
+	// components by the caller)
+	static void relabelStripe(short[] image, int width, int y0,
+			int y1, int[] cc, int[] parent, SegmentStatistics stats) {
+		for (int y = y0, i = y0 * width; y < y1; y++) {
+			int start = 0;
+			int run = -1;
+			for (int x = 0; x < width; x++, i++) {
+				int n = cc[i];
+				if (n >= 0)
+					n = cc[i] = -parent[n] - 1;
+				if (n == run)
+					continue;
+				if (run >= 0)
+					stats.addRun(run, image[i - 1], start, x, y);
+				start = x;
+				run = n;
+			}
+			if (run >= 0)
+				stats.addRun(run, image[i - 1], start, width, y);
+		}
+	}
+
+	// returns the root of label l, compressing the path on the way
+	private static int findRoot(int[] parent, int l) {
+		int r = l;
+		while (parent[r] != r)
+			r = parent[r];
+		while (parent[l] != r) {
+			final int next = parent[l];
+			parent[l] = r;
+			l = next;
+		}
+		return r;
+	}
+
+	// joins the sets containing labels a and b (union by rank)
+	private static void union(int[] parent, byte[] rank, int a, int b) {
+		a = findRoot(parent, a);
+		b = findRoot(parent, b);
+		if (a == b)
+			return;
+		if (rank[a] < rank[b]) {
+			parent[a] = b;
+		} else if (rank[a] > rank[b]) {
+			parent[b] = a;
+		} else {
+			parent[b] = a;
+			rank[a]++;
+		}
+	}
+
 	// returns number of components
 	public static int countComponents(int[][] image) {
 		int n = 0;
@@ -454,7 +731,7 @@ public class VisionUtils {
 		return canvas;
 	}
 
-	// draws bounding boxes onto an image
+	// draws a polygon onto an image
 	public static BufferedImage drawBoundingPolygon(BufferedImage canvas,
 			Polygon p, Color fgColour) {
 		Graphics2D g2d = canvas.createGraphics();
@@ -463,6 +740,17 @@ public class VisionUtils {
 		return canvas;
 	}
 
+	// draws polygons (such as Vision.findWoodPolygons gives) onto an image
+	public static BufferedImage drawBoundingPolygons(BufferedImage canvas,
+			List<Polygon> polygons, Color fgColour) {
+		Graphics2D g2d = canvas.createGraphics();
+		g2d.setColor(fgColour);
+		for (Polygon p : polygons) {
+			g2d.drawPolygon(p);
+		}
+		return canvas;
+	}
+
 	// draws bounding boxes onto an image
 	public static BufferedImage drawBoundingBoxes(BufferedImage canvas,
 			List<Rectangle> boxes, Color fgColour) {
@@ -472,17 +760,51 @@ public class VisionUtils {
 	// highlight regions with a given id
 	public static BufferedImage highlightRegions(Image img, int[][] regions,
 			int regionId, Color fgColour) {
+		return highlightRegions(img, SegmentRuns.fromLabels(regions), regionId,
+				fgColour);
+	}
+
+	// highlight the runs with a given label (drawn as highlightRegions draws
+	// them, two pixels wide and high)
+	public static BufferedImage highlightRegions(Image img, SegmentRuns runs,
+			int label, Color fgColour) {
 		BufferedImage canvas = new BufferedImage(img.getWidth(null),
 				img.getHeight(null), BufferedImage.TYPE_INT_ARGB);
 		Graphics2D g2d = canvas.createGraphics();
 		g2d.drawImage(img, 0, 0, null);
 		g2d.setColor(fgColour);
-		for (int y = 0; y < regions.length; y++) {
-			for (int x = 0; x < regions[y].length; x++) {
-				if (regions[y][x] == regionId) {
-					g2d.drawRect(x, y, 1, 1);
-				}
+		for (int y = 0; y < runs.getHeight(); y++) {
+			for (int n = runs.getRowStart(y); n < runs.getRowStart(y + 1); n++) {
+				if (runs.getRunLabel(n) == label)
+					g2d.drawRect(runs.getRunX(n), y, runs.getRunLength(n), 1);
+			}
+		}
+
+		return canvas;
+	}
+
+	// highlight the pixels of a mask (drawn as highlightRegions draws them,
+	// two pixels wide and high)
+	public static BufferedImage highlightRegions(Image img, MaskPlane mask,
+			Color fgColour) {
+		BufferedImage canvas = new BufferedImage(img.getWidth(null),
+				img.getHeight(null), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2d = canvas.createGraphics();
+		g2d.drawImage(img, 0, 0, null);
+		g2d.setColor(fgColour);
+		final int width = mask.getWidth();
+		final int[] pixels = mask.pixels();
+		for (int i = 0; i < pixels.length; i++) {
+			final int x = pixels[i] % width;
+			final int y = pixels[i] / width;
+			// draw runs of pixels at once
+			int n = 1;
+			while ((i + 1 < pixels.length) && (pixels[i + 1] == pixels[i] + 1)
+					&& (x + n < width)) {
+				i++;
+				n++;
 			}
+			g2d.drawRect(x, y, n, 1);
 		}
 
 		return canvas;